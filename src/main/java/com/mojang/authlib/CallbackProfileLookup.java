@@ -0,0 +1,239 @@
+package com.mojang.authlib;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mojang.authlib.exceptions.AuthenticationUnavailableException;
+import com.mojang.authlib.http.HttpScheduler;
+
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Runs the callback lookup of a repository on a thread of its own and hands its results out as they are
+ * reported, for repositories that have no streaming lookup. The callback waits while the buffer is full.
+ */
+class CallbackProfileLookup implements ProfileLookup, ProfileLookupCallback {
+
+    private static final int CAPACITY = 1000;
+
+    private final GameProfileRepository repository;
+    private final String[] names;
+    private final Agent agent;
+    private final Set<String> unreported = Sets.newHashSet();
+    private final Queue<ProfileLookupResult> results = new ArrayDeque<>();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private Future<?> task;
+    private boolean cancelled;
+
+    CallbackProfileLookup(GameProfileRepository repository, String[] names, Agent agent) {
+        this.repository = repository;
+        this.names = names.clone();
+        this.agent = agent;
+
+        for(String name : names) {
+            if(!Strings.isNullOrEmpty(name)) {
+                unreported.add(name.toLowerCase());
+            }
+        }
+    }
+
+    void start() {
+        Future<?> task;
+
+        try {
+            task = Worker.INSTANCE.submit(this::run);
+        } catch(RejectedExecutionException e) {
+            fail(new AuthenticationUnavailableException("Profile lookup executor rejected the lookup", e));
+            return;
+        }
+
+        synchronized(this) {
+            this.task = task;
+
+            if(!cancelled && !completion.isDone()) {
+                return;
+            }
+        }
+
+        task.cancel(true);
+    }
+
+    /**
+     * Once the timeout has passed the lookup is stopped, and the names without a result yet are reported as
+     * failed with a {@link TimeoutException}.
+     */
+    void expireAfter(long timeout, TimeUnit unit) {
+        ScheduledFuture<?> expiry = HttpScheduler.shared().schedule(() -> fail(new TimeoutException("Profile lookup deadline passed")), timeout, unit);
+        completion.whenComplete((result, error) -> expiry.cancel(false));
+    }
+
+    private void run() {
+        try {
+            repository.findProfilesByNames(names, agent, this);
+            completion.complete(null);
+        } catch(RuntimeException e) {
+            fail(e);
+        }
+
+        synchronized(this) {
+            notifyAll();
+        }
+    }
+
+    private void fail(Exception error) {
+        Future<?> task;
+
+        synchronized(this) {
+            if(cancelled || completion.isDone()) {
+                return;
+            }
+
+            for(String name : unreported) {
+                results.add(new ProfileLookupResult(new GameProfile(null, name), error));
+            }
+
+            unreported.clear();
+            task = this.task;
+        }
+
+        // Completed before the worker is interrupted, which would otherwise complete it normally as it returns
+        completion.completeExceptionally(error);
+
+        if(task != null) {
+            task.cancel(true);
+        }
+
+        // Iteration only ends once the completion future is done, so consumers can rely on it right away
+        synchronized(this) {
+            notifyAll();
+        }
+    }
+
+    @Override
+    public void onProfileLookupSucceeded(GameProfile profile) {
+        report(new ProfileLookupResult(profile, null));
+    }
+
+    @Override
+    public void onProfileLookupFailed(GameProfile profile, Exception exception) {
+        report(new ProfileLookupResult(profile, exception));
+    }
+
+    private synchronized void report(ProfileLookupResult result) {
+        while(results.size() >= CAPACITY && !cancelled && !completion.isDone()) {
+            try {
+                wait();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        // Names reported after the lookup ended already have their result
+        if(cancelled || completion.isDone()) {
+            return;
+        }
+
+        if(result.getProfile().getName() != null) {
+            unreported.remove(result.getProfile().getName().toLowerCase());
+        }
+
+        results.add(result);
+        notifyAll();
+    }
+
+    @Override
+    public boolean hasNext() {
+        synchronized(this) {
+            while(results.isEmpty()) {
+                if(cancelled || completion.isDone()) {
+                    return false;
+                }
+
+                try {
+                    wait();
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancel();
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    @Override
+    public synchronized ProfileLookupResult next() {
+        if(!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        ProfileLookupResult result = results.poll();
+        notifyAll();
+        return result;
+    }
+
+    @Override
+    public Stream<ProfileLookupResult> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::close);
+    }
+
+    @Override
+    public CompletableFuture<Void> getCompletionFuture() {
+        return completion;
+    }
+
+    @Override
+    public boolean cancel() {
+        Future<?> task;
+
+        synchronized(this) {
+            if(cancelled || completion.isDone()) {
+                return false;
+            }
+
+            cancelled = true;
+            results.clear();
+            task = this.task;
+            notifyAll();
+        }
+
+        if(task != null) {
+            task.cancel(true);
+        }
+
+        completion.cancel(false);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void close() {
+        cancel();
+    }
+
+    private static class Worker {
+        private static final ExecutorService INSTANCE = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("Authlib Profile Lookup #%d").setDaemon(true).build());
+    }
+
+}
@@ -1,7 +1,36 @@
 package com.mojang.authlib;
 
+import org.apache.commons.lang3.Validate;
+
+import java.util.concurrent.TimeUnit;
+
 public interface GameProfileRepository {
 
     void findProfilesByNames(String[] names, Agent agent, ProfileLookupCallback callback);
 
+    /**
+     * Looks up the names without blocking the caller. By default this runs {@link #findProfilesByNames} on a
+     * thread of its own and hands out the results it reports.
+     */
+    default ProfileLookup lookupProfilesByNames(String[] names, Agent agent) {
+        CallbackProfileLookup lookup = new CallbackProfileLookup(this, names, agent);
+        lookup.start();
+        return lookup;
+    }
+
+    /**
+     * Once the timeout has passed no further pages are requested, and the names that were not sent yet are
+     * reported as failed with a {@link java.util.concurrent.TimeoutException}. By default the lookup is stopped
+     * and every name without a result yet is reported that way.
+     */
+    default ProfileLookup lookupProfilesByNames(String[] names, Agent agent, long timeout, TimeUnit unit) {
+        Validate.isTrue(timeout > 0, "Timeout must be positive");
+        Validate.notNull(unit);
+
+        CallbackProfileLookup lookup = new CallbackProfileLookup(this, names, agent);
+        lookup.expireAfter(timeout, unit);
+        lookup.start();
+        return lookup;
+    }
+
 }
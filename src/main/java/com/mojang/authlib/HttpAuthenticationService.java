@@ -1,35 +1,100 @@
 package com.mojang.authlib;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mojang.authlib.http.BlockingHttpTransport;
+import com.mojang.authlib.http.CircuitBreaker;
+import com.mojang.authlib.http.CircuitBreakerOpenException;
+import com.mojang.authlib.http.HttpConnectionPool;
+import com.mojang.authlib.http.HttpRequest;
+import com.mojang.authlib.http.HttpResponse;
+import com.mojang.authlib.http.HttpScheduler;
+import com.mojang.authlib.http.HttpStatusException;
+import com.mojang.authlib.http.HttpTransport;
+import com.mojang.authlib.http.NioHttpTransport;
+import com.mojang.authlib.http.PoolTimeoutException;
+import com.mojang.authlib.http.RateLimitedException;
+import com.mojang.authlib.http.RateLimiter;
+import com.mojang.authlib.http.ResponseHandler;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.InterruptedIOException;
 import java.io.UnsupportedEncodingException;
 import java.net.*;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 import static org.apache.commons.io.Charsets.UTF_8;
 
 public abstract class HttpAuthenticationService extends BaseAuthenticationService {
 
     private static final Logger LOGGER = LogManager.getLogger();
+    public static final int DEFAULT_MAX_RESPONSE_SIZE = 1024 * 1024;
+    public static final int DEFAULT_REQUEST_THREADS = 16;
+
     private final Proxy proxy;
+    private final HttpTransport transport;
+    private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+    private volatile Supplier<CircuitBreaker> circuitBreakerFactory = CircuitBreaker::new;
+    private volatile int maxResponseSize = DEFAULT_MAX_RESPONSE_SIZE;
+    private volatile Executor requestExecutor = createRequestExecutor(DEFAULT_REQUEST_THREADS);
     
     protected HttpAuthenticationService(Proxy proxy) {
+        this(proxy, new ServiceTransport(proxy));
+        ((ServiceTransport) transport).service = this;
+    }
+
+    protected HttpAuthenticationService(Proxy proxy, HttpConnectionPool pool) {
+        this(proxy, new ServiceTransport(proxy, pool));
+        ((ServiceTransport) transport).service = this;
+    }
+
+    protected HttpAuthenticationService(Proxy proxy, HttpTransport transport) {
         super();
 
         Validate.notNull(proxy);
+        Validate.notNull(transport);
+
+        if(transport instanceof NioHttpTransport) {
+            NioHttpTransport.checkProxy(proxy);
+        }
+
         this.proxy = proxy;
+        this.transport = transport;
+
+        // api.mojang.com allows 600 requests per 10 minutes per IP, leave room for the burst
+        setRateLimiter("api.mojang.com", new RateLimiter(590, 10, TimeUnit.MINUTES, 10, RateLimiter.Mode.QUEUE, 30, TimeUnit.SECONDS));
     }
     
     public Proxy getProxy() {
         return this.proxy;
     }
-    
+
+    /**
+     * Opens the connections of the blocking transport this service creates when it is not given a transport.
+     *
+     * @deprecated override {@link BlockingHttpTransport#createUrlConnection(URL)} and pass that transport instead
+     */
+    @Deprecated
     protected HttpURLConnection createUrlConnection(URL url) throws IOException {
         Validate.notNull(url);
 
@@ -42,80 +107,271 @@ public abstract class HttpAuthenticationService extends BaseAuthenticationServic
 
         return connection;
     }
+
+    public HttpTransport getTransport() {
+        return transport;
+    }
+
+    public HttpConnectionPool getConnectionPool() {
+        return transport.getConnectionPool();
+    }
+
+    public ScheduledExecutorService getScheduler() {
+        return HttpScheduler.shared();
+    }
+
+    /**
+     * Runs requests that were deferred on the scheduler, such as retries, once they are due. A blocking transport
+     * sends them on this executor's threads.
+     */
+    public Executor getRequestExecutor() {
+        return requestExecutor;
+    }
+
+    public void setRequestExecutor(Executor requestExecutor) {
+        Validate.notNull(requestExecutor);
+        this.requestExecutor = requestExecutor;
+    }
+
+    /**
+     * Creates a bounded pool of daemon threads whose threads exit after being idle for a minute.
+     */
+    public static ExecutorService createRequestExecutor(int threads) {
+        Validate.isTrue(threads > 0, "Thread count must be positive");
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("Authlib Request #%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public int getMaxResponseSize() {
+        return maxResponseSize;
+    }
+
+    public void setMaxResponseSize(int maxResponseSize) {
+        Validate.isTrue(maxResponseSize > 0, "Max response size must be positive");
+        this.maxResponseSize = maxResponseSize;
+    }
     
     public String performPostRequest(URL url, String post, String contentType) throws IOException {
-        Validate.notNull(url);
-        Validate.notNull(post);
-        Validate.notNull(contentType);
+        return await(performPostRequestAsync(url, post, contentType));
+    }
+    
+    public String performGetRequest(URL url) throws IOException {
+        return await(performGetRequestAsync(url));
+    }
 
-        byte[] postAsBytes = post.getBytes(UTF_8);
+    public CircuitBreaker getCircuitBreaker(String endpoint) {
+        CircuitBreaker breaker = circuitBreakers.get(endpoint);
 
-        HttpURLConnection connection = createUrlConnection(url);
-        connection.setRequestProperty("Content-Type", contentType + "; charset=utf-8");
-        connection.setRequestProperty("Content-Length", "" + postAsBytes.length);
-        connection.setDoOutput(true);
+        if(breaker == null) {
+            CircuitBreaker created = circuitBreakerFactory.get();
+            breaker = circuitBreakers.putIfAbsent(endpoint, created);
 
-        LOGGER.debug("Writing POST data to " + url + ": " + post);
+            if(breaker == null) {
+                breaker = created;
+            }
+        }
+
+        return breaker;
+    }
+
+    public void setCircuitBreakerFactory(Supplier<CircuitBreaker> circuitBreakerFactory) {
+        Validate.notNull(circuitBreakerFactory);
+        this.circuitBreakerFactory = circuitBreakerFactory;
+        this.circuitBreakers.clear();
+    }
+
+    public RateLimiter getRateLimiter(String host) {
+        return rateLimiters.get(host.toLowerCase(Locale.ROOT));
+    }
 
-        try(OutputStream outputStream = connection.getOutputStream()) {
-            IOUtils.write(postAsBytes, outputStream);
+    /**
+     * Limits the rate of requests to every endpoint on the given host, or removes the limit when passed null.
+     */
+    public void setRateLimiter(String host, RateLimiter rateLimiter) {
+        Validate.notNull(host);
+
+        if(rateLimiter == null) {
+            rateLimiters.remove(host.toLowerCase(Locale.ROOT));
+        } else {
+            rateLimiters.put(host.toLowerCase(Locale.ROOT), rateLimiter);
         }
+    }
 
-        LOGGER.debug("Reading data from " + url);
+    public CompletableFuture<String> performPostRequestAsync(URL url, String post, String contentType) {
+        return execute(HttpRequest.post(url, post, contentType), HttpAuthenticationService::readBody);
+    }
+
+    public CompletableFuture<String> performGetRequestAsync(URL url) {
+        return execute(HttpRequest.get(url), HttpAuthenticationService::readBody);
+    }
 
-        try(InputStream inputStream = connection.getInputStream()) {
-            String result = IOUtils.toString(inputStream, UTF_8);
+    public <T> CompletableFuture<T> execute(HttpRequest request, ResponseHandler<T> handler) {
+        Validate.notNull(request);
+        Validate.notNull(handler);
 
-            LOGGER.debug("Successful read, server response was " + connection.getResponseCode());
-            LOGGER.debug("Response: " + result);
+        if(request.getMaxResponseSize() > maxResponseSize) {
+            request = request.withMaxResponseSize(maxResponseSize);
+        }
+
+        RateLimiter limiter = rateLimiters.isEmpty() ? null : getRateLimiter(request.getUrl().getHost());
 
-            return result;
-        } catch(IOException e) {
-            InputStream errorStream = connection.getErrorStream();
+        if(limiter == null) {
+            return send(request, handler, null);
+        }
 
-            if(errorStream != null) {
-                LOGGER.debug("Reading error page from " + url);
+        long delay = limiter.reserve();
 
-                String result2 = IOUtils.toString(errorStream, UTF_8);
-                LOGGER.debug("Successful read, server response was " + connection.getResponseCode());
-                LOGGER.debug("Response: " + result2);
+        if(delay < 0) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new RateLimitedException(request.getUrl().getHost()));
+            return rejected;
+        }
+
+        if(delay == 0) {
+            return send(request, handler, limiter);
+        }
+
+        CompletableFuture<T> queued = new CompletableFuture<>();
+        HttpRequest delayed = request;
+
+        // The scheduler thread must not block on the transport, so the request is handed off once it is due
+        Executor executor = requestExecutor;
+        ScheduledFuture<?> task = getScheduler().schedule(() -> {
+            try {
+                executor.execute(() -> {
+                    if(queued.isDone()) {
+                        return;
+                    }
+
+                    CompletableFuture<T> sent = send(delayed, handler, limiter);
+                    queued.whenComplete((result, error) -> {
+                        if(queued.isCancelled()) {
+                            sent.cancel(true);
+                        }
+                    });
+
+                    sent.whenComplete((result, error) -> {
+                        if(error != null) {
+                            queued.completeExceptionally(error);
+                        } else {
+                            queued.complete(result);
+                        }
+                    });
+                });
+            } catch(RejectedExecutionException e) {
+                queued.completeExceptionally(new IOException("Request executor rejected queued request", e));
+            }
+        }, delay, TimeUnit.NANOSECONDS);
 
-                return result2;
+        queued.whenComplete((result, error) -> {
+            if(queued.isCancelled()) {
+                task.cancel(false);
             }
+        });
 
-            LOGGER.debug("Request failed", e);
-            throw e;
+        return queued;
+    }
+
+    private <T> CompletableFuture<T> send(HttpRequest request, ResponseHandler<T> handler, RateLimiter limiter) {
+        String endpoint = request.getEndpoint();
+        CircuitBreaker breaker = getCircuitBreaker(endpoint);
+        CircuitBreaker.Permit permit = breaker.tryAcquire();
+
+        if(permit == null) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new CircuitBreakerOpenException(endpoint));
+            return rejected;
         }
+
+        AtomicBoolean recorded = new AtomicBoolean();
+
+        CompletableFuture<T> result = transport.execute(request, response -> {
+            if(response.getStatusCode() == 429 && limiter != null) {
+                long retryAfter = response.getRetryAfterMillis();
+                limiter.pause(retryAfter >= 0 ? retryAfter : 1000, TimeUnit.MILLISECONDS);
+            }
+
+            // The outcome is only known once the body has been read, as a server can also stall or fail mid-body
+            boolean answered = response.getStatusCode() < 500;
+            T value;
+
+            try {
+                value = handler.handleResponse(response);
+            } catch(HttpStatusException | RuntimeException e) {
+                record(breaker, permit, recorded, answered);
+                throw e;
+            } catch(IOException e) {
+                record(breaker, permit, recorded, false);
+                throw e;
+            }
+
+            record(breaker, permit, recorded, answered);
+            return value;
+        });
+
+        result.whenComplete((response, error) -> {
+            if(error != null && recorded.compareAndSet(false, true)) {
+                // Waiting too long for a local connection slot is no sign of a failing server
+                if(result.isCancelled() || unwrap(error) instanceof PoolTimeoutException) {
+                    breaker.release(permit);
+                } else {
+                    LOGGER.debug("Request to " + endpoint + " failed", error);
+                    breaker.onFailure(permit);
+                }
+            }
+        });
+
+        return result;
     }
-    
-    public String performGetRequest(URL url) throws IOException {
-        Validate.notNull(url);
 
-        HttpURLConnection connection = this.createUrlConnection(url);
-        LOGGER.debug("Reading data from " + url);
+    private static void record(CircuitBreaker breaker, CircuitBreaker.Permit permit, AtomicBoolean recorded, boolean success) {
+        if(!recorded.compareAndSet(false, true)) {
+            return;
+        }
 
-        try(InputStream inputStream = connection.getInputStream()) {
-            String result = IOUtils.toString(inputStream, UTF_8);
+        if(success) {
+            breaker.onSuccess(permit);
+        } else {
+            breaker.onFailure(permit);
+        }
+    }
 
-            LOGGER.debug("Successful read, server response was " + connection.getResponseCode());
-            LOGGER.debug("Response: " + result);
+    private static Throwable unwrap(Throwable error) {
+        return (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+    }
 
-            return result;
-        } catch(IOException e) {
-            InputStream errorStream = connection.getErrorStream();
+    private static String readBody(HttpResponse response) throws IOException {
+        String result = IOUtils.toString(response.getBody(), UTF_8);
+        LOGGER.debug("Response: " + result);
+        return result;
+    }
 
-            if(errorStream != null) {
-                LOGGER.debug("Reading error page from " + url);
+    protected static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new InterruptedIOException("Interrupted while waiting for response");
+        } catch(ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if(cause instanceof IOException) {
+                throw (IOException) cause;
+            }
 
-                String result2 = IOUtils.toString(errorStream, UTF_8);
-                LOGGER.debug("Successful read, server response was " + connection.getResponseCode());
-                LOGGER.debug("Response: " + result2);
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
 
-                return result2;
+            if(cause instanceof Error) {
+                throw (Error) cause;
             }
 
-            LOGGER.debug("Request failed", e);
-            throw e;
+            throw new IOException(cause);
         }
     }
 
@@ -171,4 +427,23 @@ public abstract class HttpAuthenticationService extends BaseAuthenticationServic
         }
     }
 
+    // Calls back into the service, so subclasses that still override createUrlConnection keep working
+    private static class ServiceTransport extends BlockingHttpTransport {
+        private volatile HttpAuthenticationService service;
+
+        private ServiceTransport(Proxy proxy) {
+            super(proxy);
+        }
+
+        private ServiceTransport(Proxy proxy, HttpConnectionPool pool) {
+            super(proxy, pool);
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        protected HttpURLConnection createUrlConnection(URL url) throws IOException {
+            return service.createUrlConnection(url);
+        }
+    }
+
 }
@@ -0,0 +1,40 @@
+package com.mojang.authlib;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * A running lookup of profiles by name, handing out one result per requested name as pages of results arrive.
+ * Only a bounded number of results is buffered, further pages are not requested until they have been consumed.
+ * Iterating blocks until the next result is available.
+ */
+public interface ProfileLookup extends Iterator<ProfileLookupResult>, AutoCloseable {
+
+    /**
+     * Returns the remaining results as a sequential stream. Closing the stream cancels the lookup.
+     */
+    Stream<ProfileLookupResult> stream();
+
+    /**
+     * Completes once a result has been produced for every name, exceptionally with a
+     * {@link java.util.concurrent.TimeoutException} if the deadline passed first, or is cancelled with the lookup.
+     */
+    CompletableFuture<Void> getCompletionFuture();
+
+    /**
+     * Stops sending pages and cancels the pages in flight. Results that were not consumed yet are dropped.
+     *
+     * @return false if the lookup had already finished or was cancelled before
+     */
+    boolean cancel();
+
+    boolean isCancelled();
+
+    /**
+     * Cancels the lookup if it has not finished yet.
+     */
+    @Override
+    void close();
+
+}
@@ -0,0 +1,33 @@
+package com.mojang.authlib;
+
+public class ProfileLookupResult {
+
+    private final GameProfile profile;
+    private final Exception error;
+
+    public ProfileLookupResult(GameProfile profile, Exception error) {
+        this.profile = profile;
+        this.error = error;
+    }
+
+    /**
+     * The profile that was found, or a profile carrying only the requested name when the lookup failed.
+     */
+    public GameProfile getProfile() {
+        return profile;
+    }
+
+    public Exception getError() {
+        return error;
+    }
+
+    public boolean isFound() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return isFound() ? "Found " + profile : "Failed " + profile + ": " + error;
+    }
+
+}
@@ -0,0 +1,211 @@
+package com.mojang.authlib.http;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.apache.commons.io.Charsets.UTF_8;
+
+/**
+ * Transport on top of {@link HttpURLConnection}, which keeps sockets alive on its own. The connection pool is
+ * therefore only used to bound how many requests run at once per host, and only when one is passed in
+ * explicitly; its idle, created and reused counts always stay at zero.
+ */
+public class BlockingHttpTransport implements HttpTransport {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private final Proxy proxy;
+    private final HttpConnectionPool pool;
+    private final boolean bounded;
+    private final int connectTimeout;
+    private final int readTimeout;
+
+    public BlockingHttpTransport(Proxy proxy) {
+        this(proxy, new HttpConnectionPool(), false, 15000, 15000);
+    }
+
+    public BlockingHttpTransport(Proxy proxy, HttpConnectionPool pool) {
+        this(proxy, pool, 15000, 15000);
+    }
+
+    /**
+     * Requests wait for one of the pool's slots for their host, for up to the connect timeout.
+     */
+    public BlockingHttpTransport(Proxy proxy, HttpConnectionPool pool, int connectTimeout, int readTimeout) {
+        this(proxy, pool, true, connectTimeout, readTimeout);
+    }
+
+    private BlockingHttpTransport(Proxy proxy, HttpConnectionPool pool, boolean bounded, int connectTimeout, int readTimeout) {
+        Validate.notNull(proxy);
+        Validate.notNull(pool);
+        Validate.isTrue(connectTimeout > 0 && readTimeout > 0, "Timeouts must be positive");
+
+        this.proxy = proxy;
+        this.pool = pool;
+        this.bounded = bounded;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    public Proxy getProxy() {
+        return proxy;
+    }
+
+    @Override
+    public HttpConnectionPool getConnectionPool() {
+        return pool;
+    }
+
+    protected HttpURLConnection createUrlConnection(URL url) throws IOException {
+        Validate.notNull(url);
+
+        LOGGER.debug("Opening connection to " + url);
+
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection(proxy);
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        connection.setUseCaches(false);
+
+        return connection;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> execute(HttpRequest request, ResponseHandler<T> handler) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        try {
+            future.complete(perform(request, handler));
+        } catch(IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    protected <T> T perform(HttpRequest request, ResponseHandler<T> handler) throws IOException {
+        Validate.notNull(request);
+        Validate.notNull(handler);
+
+        if(!bounded) {
+            return perform(request, createUrlConnection(request.getUrl()), handler);
+        }
+
+        // HttpURLConnection keeps the sockets alive itself, the pool only bounds how many are in use per host
+        String route = request.getEndpoint();
+        acquire(route);
+
+        try {
+            return perform(request, createUrlConnection(request.getUrl()), handler);
+        } finally {
+            pool.release(route, null, false);
+        }
+    }
+
+    private void acquire(String route) throws IOException {
+        CompletableFuture<Closeable> acquired = pool.acquire(route);
+
+        try {
+            acquired.get(connectTimeout, TimeUnit.MILLISECONDS);
+        } catch(InterruptedException e) {
+            abandon(route, acquired);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a connection to " + route);
+        } catch(TimeoutException e) {
+            abandon(route, acquired);
+            throw new PoolTimeoutException(route);
+        } catch(ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void abandon(String route, CompletableFuture<Closeable> acquired) {
+        // The slot may have been handed to us just as we gave up on it, in which case it has to go back
+        if(!acquired.cancel(false)) {
+            pool.release(route, null, false);
+        }
+    }
+
+    private <T> T perform(HttpRequest request, HttpURLConnection connection, ResponseHandler<T> handler) throws IOException {
+        URL url = request.getUrl();
+        connection.setRequestMethod(request.getMethod());
+
+        if(request.hasBody()) {
+            RequestBuffer buffer = RequestBuffer.local();
+
+            try {
+                request.getBody().writeTo(buffer);
+
+                connection.setRequestProperty("Content-Type", request.getBody().getContentType());
+                connection.setRequestProperty("Content-Length", "" + buffer.size());
+                connection.setDoOutput(true);
+
+                if(LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Writing POST data to " + url + ": " + new String(buffer.array(), 0, buffer.size(), UTF_8));
+                }
+
+                try(OutputStream outputStream = connection.getOutputStream()) {
+                    buffer.writeTo(outputStream);
+                }
+            } finally {
+                RequestBuffer.recycle(buffer);
+            }
+        }
+
+        LOGGER.debug("Reading data from " + url);
+
+        InputStream inputStream;
+
+        try {
+            inputStream = connection.getInputStream();
+        } catch(IOException e) {
+            inputStream = connection.getErrorStream();
+
+            if(inputStream == null) {
+                LOGGER.debug("Request failed", e);
+                throw e;
+            }
+
+            LOGGER.debug("Reading error page from " + url);
+        }
+
+        try(InputStream body = new SizeLimitedInputStream(inputStream, request.getMaxResponseSize())) {
+            LOGGER.debug("Successful read, server response was " + connection.getResponseCode());
+
+            return handler.handleResponse(new HttpResponse(connection.getResponseCode(), getHeaders(connection), body));
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    private static Map<String, String> getHeaders(HttpURLConnection connection) {
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        for(Map.Entry<String, List<String>> entry : connection.getHeaderFields().entrySet()) {
+            if(entry.getKey() != null && !entry.getValue().isEmpty()) {
+                headers.put(entry.getKey(), entry.getValue().get(entry.getValue().size() - 1));
+            }
+        }
+
+        return headers;
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.mojang.authlib.http;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CircuitBreaker {
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_DURATION_SECONDS = 10;
+    public static final int DEFAULT_TRIAL_REQUESTS = 2;
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    public enum Permit {
+        NORMAL, TRIAL
+    }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final int trialRequests;
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private int trialsInFlight;
+    private int trialSuccesses;
+
+    public CircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION_SECONDS, TimeUnit.SECONDS, DEFAULT_TRIAL_REQUESTS);
+    }
+
+    public CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit, int trialRequests) {
+        Validate.isTrue(failureThreshold > 0, "Failure threshold must be positive");
+        Validate.isTrue(openDuration > 0, "Open duration must be positive");
+        Validate.isTrue(trialRequests > 0, "Trial requests must be positive");
+        Validate.notNull(unit);
+
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = unit.toNanos(openDuration);
+        this.trialRequests = trialRequests;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Returns null when the request must not be sent. Otherwise the permit has to be handed back
+     * through exactly one of {@link #onSuccess}, {@link #onFailure} or {@link #release}.
+     */
+    public Permit tryAcquire() {
+        if(state == State.CLOSED) {
+            return Permit.NORMAL;
+        }
+
+        synchronized(this) {
+            if(state == State.OPEN) {
+                if(System.nanoTime() - openedAt < openDurationNanos) {
+                    rejected.incrementAndGet();
+                    return null;
+                }
+
+                state = State.HALF_OPEN;
+                trialsInFlight = 0;
+                trialSuccesses = 0;
+            }
+
+            if(state == State.CLOSED) {
+                return Permit.NORMAL;
+            }
+
+            if(trialsInFlight + trialSuccesses >= trialRequests) {
+                rejected.incrementAndGet();
+                return null;
+            }
+
+            trialsInFlight++;
+            return Permit.TRIAL;
+        }
+    }
+
+    public void onSuccess(Permit permit) {
+        if(permit == Permit.NORMAL) {
+            if(state == State.CLOSED) {
+                synchronized(this) {
+                    consecutiveFailures = 0;
+                }
+            }
+
+            return;
+        }
+
+        synchronized(this) {
+            if(state != State.HALF_OPEN) {
+                return;
+            }
+
+            trialsInFlight--;
+
+            if(++trialSuccesses >= trialRequests) {
+                state = State.CLOSED;
+                consecutiveFailures = 0;
+            }
+        }
+    }
+
+    public void onFailure(Permit permit) {
+        synchronized(this) {
+            if(permit == Permit.TRIAL) {
+                if(state == State.HALF_OPEN) {
+                    open();
+                }
+
+                return;
+            }
+
+            if(state == State.CLOSED && ++consecutiveFailures >= failureThreshold) {
+                open();
+            }
+        }
+    }
+
+    public void release(Permit permit) {
+        if(permit == Permit.TRIAL) {
+            synchronized(this) {
+                if(state == State.HALF_OPEN) {
+                    trialsInFlight--;
+                }
+            }
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        trialsInFlight = 0;
+        trialSuccesses = 0;
+    }
+
+}
@@ -0,0 +1,11 @@
+package com.mojang.authlib.http;
+
+import java.io.IOException;
+
+public class CircuitBreakerOpenException extends IOException {
+
+    public CircuitBreakerOpenException(String endpoint) {
+        super("Circuit breaker for " + endpoint + " is open");
+    }
+
+}
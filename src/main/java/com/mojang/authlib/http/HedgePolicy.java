@@ -0,0 +1,217 @@
+package com.mojang.authlib.http;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Sends a second copy of a request when the first one has not answered within a percentile of the recently
+ * observed latencies, completing with whichever answers first and cancelling the other. Hedges draw from a
+ * budget that grows by a fraction of a token per request, which bounds the extra load on the server.
+ *
+ * The first attempt is started on the calling thread, so with a blocking transport it has already finished
+ * by the time a hedge could be sent and no hedging takes place.
+ */
+public class HedgePolicy {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final long TOKEN = 1000;
+    private static final int SAMPLES = 256;
+    private static final int MIN_SAMPLES = 20;
+    private static final int RECOMPUTE_INTERVAL = 16;
+
+    public static final double DEFAULT_PERCENTILE = 0.95;
+    public static final long DEFAULT_MIN_DELAY_MILLIS = 50;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 2000;
+    public static final double DEFAULT_BUDGET_RATIO = 0.05;
+
+    private final double percentile;
+    private final long minDelay;
+    private final long maxDelay;
+    private final long depositPerRequest;
+    private final long maxBalance;
+    private final AtomicLongArray samples = new AtomicLongArray(SAMPLES);
+    private final AtomicLong sampleCount = new AtomicLong();
+    private final AtomicLong budget;
+    private final AtomicLong hedged = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private volatile long hedgeDelay;
+
+    public HedgePolicy() {
+        this(DEFAULT_PERCENTILE, DEFAULT_MIN_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, MILLISECONDS, DEFAULT_BUDGET_RATIO);
+    }
+
+    /**
+     * @param percentile  the latency percentile after which a hedge is sent, between 0 and 1
+     * @param budgetRatio hedges allowed per request
+     */
+    public HedgePolicy(double percentile, long minDelay, long maxDelay, TimeUnit unit, double budgetRatio) {
+        Validate.isTrue(percentile > 0 && percentile < 1, "Percentile must be between 0 and 1");
+        Validate.isTrue(minDelay > 0 && maxDelay >= minDelay, "Delays must be positive and max delay must not be below min delay");
+        Validate.isTrue(budgetRatio > 0 && budgetRatio <= 1, "Budget ratio must be between 0 and 1");
+        Validate.notNull(unit);
+
+        this.percentile = percentile;
+        this.minDelay = unit.toNanos(minDelay);
+        this.maxDelay = unit.toNanos(maxDelay);
+        this.depositPerRequest = (long) (budgetRatio * TOKEN);
+        // Allow a short run of hedges when a slow spell starts, but never more than a handful in a row
+        this.maxBalance = Math.max(TOKEN, (long) (budgetRatio * 100) * TOKEN);
+        this.budget = new AtomicLong(TOKEN);
+        this.hedgeDelay = this.maxDelay;
+    }
+
+    public long getHedgeDelay(TimeUnit unit) {
+        return unit.convert(hedgeDelay, NANOSECONDS);
+    }
+
+    public long getHedgedCount() {
+        return hedged.get();
+    }
+
+    public long getHedgeWinCount() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * @param scheduler times the hedge, and is never used to send it
+     * @param executor  sends the hedge, which may block when the transport does
+     */
+    public <T> CompletableFuture<T> execute(ScheduledExecutorService scheduler, Executor executor, Supplier<CompletableFuture<T>> attempt) {
+        deposit();
+
+        long start = System.nanoTime();
+        CompletableFuture<T> primary = attempt.get();
+
+        if(primary.isDone()) {
+            if(!primary.isCompletedExceptionally()) {
+                record(System.nanoTime() - start);
+            }
+
+            return primary;
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<T>> hedge = new AtomicReference<>();
+        AtomicInteger pending = new AtomicInteger(1);
+
+        // The scheduler thread must not block on the transport, so the hedge is handed off once it is due
+        ScheduledFuture<?> timer = scheduler.schedule(() -> {
+            try {
+                executor.execute(() -> {
+                    if(result.isDone() || !withdraw()) {
+                        return;
+                    }
+
+                    pending.incrementAndGet();
+                    hedged.incrementAndGet();
+                    LOGGER.debug("No response after {} ms, sending hedged request", NANOSECONDS.toMillis(hedgeDelay));
+
+                    CompletableFuture<T> second = attempt.get();
+                    hedge.set(second);
+
+                    if(result.isDone()) {
+                        second.cancel(true);
+                    } else {
+                        listen(second, result, pending, start, true);
+                    }
+                });
+            } catch(RejectedExecutionException ignored) {
+                // Without a hedge the primary request simply carries on
+            }
+        }, hedgeDelay, NANOSECONDS);
+
+        listen(primary, result, pending, start, false);
+
+        result.whenComplete((value, error) -> {
+            timer.cancel(false);
+            primary.cancel(true);
+
+            CompletableFuture<T> second = hedge.get();
+
+            if(second != null) {
+                second.cancel(true);
+            }
+        });
+
+        return result;
+    }
+
+    private <T> void listen(CompletableFuture<T> future, CompletableFuture<T> result, AtomicInteger pending, long start, boolean isHedge) {
+        future.whenComplete((value, error) -> {
+            if(error == null) {
+                if(result.complete(value)) {
+                    record(System.nanoTime() - start);
+
+                    if(isHedge) {
+                        hedgeWins.incrementAndGet();
+                    }
+                }
+            } else if(pending.decrementAndGet() == 0) {
+                result.completeExceptionally((error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error);
+            }
+        });
+    }
+
+    private void record(long latency) {
+        long count = sampleCount.getAndIncrement();
+        samples.set((int) (count % SAMPLES), latency);
+
+        if(count + 1 >= MIN_SAMPLES && (count + 1) % RECOMPUTE_INTERVAL == 0) {
+            int size = (int) Math.min(count + 1, SAMPLES);
+            long[] sorted = new long[size];
+
+            for(int i = 0; i < size; i++) {
+                sorted[i] = samples.get(i);
+            }
+
+            Arrays.sort(sorted);
+            long delay = sorted[Math.min(size - 1, (int) (size * percentile))];
+            hedgeDelay = Math.max(minDelay, Math.min(maxDelay, delay));
+        }
+    }
+
+    private void deposit() {
+        long balance;
+
+        do {
+            balance = budget.get();
+
+            if(balance >= maxBalance) {
+                return;
+            }
+        } while(!budget.compareAndSet(balance, Math.min(maxBalance, balance + depositPerRequest)));
+    }
+
+    private boolean withdraw() {
+        long balance;
+
+        do {
+            balance = budget.get();
+
+            if(balance < TOKEN) {
+                return false;
+            }
+        } while(!budget.compareAndSet(balance, balance - TOKEN));
+
+        return true;
+    }
+
+}
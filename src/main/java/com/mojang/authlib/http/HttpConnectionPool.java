@@ -0,0 +1,320 @@
+package com.mojang.authlib.http;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class HttpConnectionPool {
+
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 8;
+    public static final long DEFAULT_IDLE_TIMEOUT_SECONDS = 30;
+
+    private final int maxConnectionsPerHost;
+    private final long idleTimeoutNanos;
+    private final ConcurrentMap<String, Route> routes = new ConcurrentHashMap<>();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private volatile boolean closed;
+
+    public HttpConnectionPool() {
+        this(DEFAULT_MAX_CONNECTIONS_PER_HOST, DEFAULT_IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public HttpConnectionPool(int maxConnectionsPerHost, long idleTimeout, TimeUnit unit) {
+        Validate.isTrue(maxConnectionsPerHost > 0, "Max connections per host must be positive");
+        Validate.isTrue(idleTimeout > 0, "Idle timeout must be positive");
+        Validate.notNull(unit);
+
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    public long getIdleTimeout(TimeUnit unit) {
+        return unit.convert(idleTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Reserves a connection slot for the route. The future completes with an idle connection to reuse,
+     * or with null when the caller should open a new connection in the reserved slot.
+     */
+    CompletableFuture<Closeable> acquire(String route) {
+        if(closed) {
+            CompletableFuture<Closeable> future = new CompletableFuture<>();
+            future.completeExceptionally(new IOException("Connection pool is closed"));
+            return future;
+        }
+
+        return getRoute(route).acquire();
+    }
+
+    void release(String route, Closeable connection, boolean reusable) {
+        getRoute(route).release(connection, reusable && !closed);
+    }
+
+    void recordCreated() {
+        created.incrementAndGet();
+    }
+
+    void evictIdleConnections(String route) {
+        Route entry = routes.get(route);
+
+        if(entry != null) {
+            entry.evict(Long.MAX_VALUE);
+        }
+    }
+
+    public void evictIdleConnections() {
+        long now = System.nanoTime();
+
+        for(Route route : routes.values()) {
+            route.evict(now);
+        }
+    }
+
+    public Stats getStats() {
+        int leased = 0;
+        int idle = 0;
+        int pending = 0;
+
+        for(Route route : routes.values()) {
+            synchronized(route) {
+                leased += route.leased;
+                idle += route.idle.size();
+                pending += route.waiters.size();
+            }
+        }
+
+        return new Stats(leased, idle, pending, created.get(), reused.get(), evicted.get());
+    }
+
+    public void close() {
+        closed = true;
+
+        for(Route route : routes.values()) {
+            route.evict(Long.MAX_VALUE);
+            route.failWaiters();
+        }
+    }
+
+    private Route getRoute(String route) {
+        Route entry = routes.get(route);
+
+        if(entry == null) {
+            Route created = new Route();
+            entry = routes.putIfAbsent(route, created);
+
+            if(entry == null) {
+                entry = created;
+            }
+        }
+
+        return entry;
+    }
+
+    private static void closeQuietly(Closeable connection) {
+        try {
+            connection.close();
+        } catch(IOException ignored) {}
+    }
+
+    private static class IdleConnection {
+        private final Closeable connection;
+        private final long idleSince;
+
+        private IdleConnection(Closeable connection, long idleSince) {
+            this.connection = connection;
+            this.idleSince = idleSince;
+        }
+    }
+
+    private class Route {
+        private final Deque<IdleConnection> idle = new ArrayDeque<>();
+        private final Deque<CompletableFuture<Closeable>> waiters = new ArrayDeque<>();
+        private int leased;
+
+        private CompletableFuture<Closeable> acquire() {
+            CompletableFuture<Closeable> future = new CompletableFuture<>();
+            List<Closeable> expired = new ArrayList<>();
+            Closeable connection = null;
+            boolean granted = false;
+
+            synchronized(this) {
+                long now = System.nanoTime();
+
+                while(!idle.isEmpty()) {
+                    IdleConnection candidate = idle.pollFirst();
+
+                    if(now - candidate.idleSince < idleTimeoutNanos) {
+                        connection = candidate.connection;
+                        break;
+                    }
+
+                    expired.add(candidate.connection);
+                }
+
+                if(connection != null || leased + idle.size() < maxConnectionsPerHost) {
+                    leased++;
+                    granted = true;
+                } else {
+                    waiters.addLast(future);
+                }
+            }
+
+            for(Closeable candidate : expired) {
+                evicted.incrementAndGet();
+                closeQuietly(candidate);
+            }
+
+            if(granted) {
+                if(connection != null) {
+                    reused.incrementAndGet();
+                }
+
+                future.complete(connection);
+            }
+
+            return future;
+        }
+
+        private void release(Closeable connection, boolean reusable) {
+            if(connection != null && !reusable) {
+                closeQuietly(connection);
+                connection = null;
+            }
+
+            while(true) {
+                CompletableFuture<Closeable> waiter;
+
+                synchronized(this) {
+                    waiter = waiters.pollFirst();
+
+                    if(waiter == null) {
+                        leased--;
+
+                        if(connection != null) {
+                            idle.addFirst(new IdleConnection(connection, System.nanoTime()));
+                        }
+
+                        return;
+                    }
+                }
+
+                // The slot passes straight to the next waiter, skipping any that gave up in the meantime
+                if(waiter.complete(connection)) {
+                    if(connection != null) {
+                        reused.incrementAndGet();
+                    }
+
+                    return;
+                }
+            }
+        }
+
+        private void evict(long now) {
+            List<Closeable> expired = new ArrayList<>();
+
+            synchronized(this) {
+                Iterator<IdleConnection> iterator = idle.iterator();
+
+                while(iterator.hasNext()) {
+                    IdleConnection candidate = iterator.next();
+
+                    if(now == Long.MAX_VALUE || now - candidate.idleSince >= idleTimeoutNanos) {
+                        iterator.remove();
+                        expired.add(candidate.connection);
+                    }
+                }
+            }
+
+            for(Closeable candidate : expired) {
+                evicted.incrementAndGet();
+                closeQuietly(candidate);
+            }
+        }
+
+        private void failWaiters() {
+            List<CompletableFuture<Closeable>> failed;
+
+            synchronized(this) {
+                failed = new ArrayList<>(waiters);
+                waiters.clear();
+            }
+
+            for(CompletableFuture<Closeable> waiter : failed) {
+                waiter.completeExceptionally(new IOException("Connection pool is closed"));
+            }
+        }
+    }
+
+    public static class Stats {
+        private final int leased;
+        private final int idle;
+        private final int pending;
+        private final long created;
+        private final long reused;
+        private final long evicted;
+
+        public Stats(int leased, int idle, int pending, long created, long reused, long evicted) {
+            this.leased = leased;
+            this.idle = idle;
+            this.pending = pending;
+            this.created = created;
+            this.reused = reused;
+            this.evicted = evicted;
+        }
+
+        public int getLeased() {
+            return leased;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getPending() {
+            return pending;
+        }
+
+        public long getCreated() {
+            return created;
+        }
+
+        public long getReused() {
+            return reused;
+        }
+
+        public long getEvicted() {
+            return evicted;
+        }
+
+        @Override
+        public String toString() {
+            return new ToStringBuilder(this)
+                    .append("leased", leased)
+                    .append("idle", idle)
+                    .append("pending", pending)
+                    .append("created", created)
+                    .append("reused", reused)
+                    .append("evicted", evicted)
+                    .toString();
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.mojang.authlib.http;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Locale;
+
+import static org.apache.commons.io.Charsets.UTF_8;
+
+public class HttpRequest {
+
+    private final String method;
+    private final URL url;
+    private final RequestBody body;
+    private final int maxResponseSize;
+    private String endpoint;
+
+    private HttpRequest(String method, URL url, RequestBody body, int maxResponseSize) {
+        this.method = method;
+        this.url = url;
+        this.body = body;
+        this.maxResponseSize = maxResponseSize;
+    }
+
+    public static HttpRequest get(URL url) {
+        Validate.notNull(url);
+
+        return new HttpRequest("GET", url, null, Integer.MAX_VALUE);
+    }
+
+    public static HttpRequest post(URL url, String post, String contentType) {
+        Validate.notNull(url);
+        Validate.notNull(post);
+        Validate.notNull(contentType);
+
+        return post(url, new BytesBody(post.getBytes(UTF_8), contentType + "; charset=utf-8"));
+    }
+
+    public static HttpRequest post(URL url, RequestBody body) {
+        Validate.notNull(url);
+        Validate.notNull(body);
+
+        return new HttpRequest("POST", url, body, Integer.MAX_VALUE);
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+
+    public String getEndpoint() {
+        if(endpoint == null) {
+            int port = (url.getPort() == -1) ? url.getDefaultPort() : url.getPort();
+            endpoint = url.getProtocol().toLowerCase(Locale.ROOT) + "://" + url.getHost().toLowerCase(Locale.ROOT) + ":" + port;
+        }
+
+        return endpoint;
+    }
+
+    public RequestBody getBody() {
+        return body;
+    }
+
+    public boolean hasBody() {
+        return body != null;
+    }
+
+    public int getMaxResponseSize() {
+        return maxResponseSize;
+    }
+
+    public HttpRequest withMaxResponseSize(int maxResponseSize) {
+        Validate.isTrue(maxResponseSize > 0, "Max response size must be positive");
+
+        return new HttpRequest(method, url, body, maxResponseSize);
+    }
+
+    private static class BytesBody implements RequestBody {
+        private final byte[] bytes;
+        private final String contentType;
+
+        private BytesBody(byte[] bytes, String contentType) {
+            this.bytes = bytes;
+            this.contentType = contentType;
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(bytes);
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.mojang.authlib.http;
+
+import java.io.InputStream;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.Map;
+
+public class HttpResponse {
+
+    private final int statusCode;
+    private final Map<String, String> headers;
+    private final InputStream body;
+
+    public HttpResponse(int statusCode, Map<String, String> headers, InputStream body) {
+        this.statusCode = statusCode;
+        this.headers = Collections.unmodifiableMap(headers);
+        this.body = body;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getHeader(String name) {
+        return headers.get(name);
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public InputStream getBody() {
+        return body;
+    }
+
+    public long getRetryAfterMillis() {
+        String value = headers.get("Retry-After");
+
+        if(value == null) {
+            return -1;
+        }
+
+        try {
+            return Math.max(0, Long.parseLong(value.trim()) * 1000);
+        } catch(NumberFormatException ignored) {}
+
+        try {
+            long until = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Math.max(0, until - System.currentTimeMillis());
+        } catch(DateTimeParseException ignored) {}
+
+        return -1;
+    }
+
+}
@@ -0,0 +1,243 @@
+package com.mojang.authlib.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+
+class HttpResponseParser {
+
+    private static final int MAX_LINE_LENGTH = 8192;
+
+    private enum State {
+        STATUS_LINE, HEADERS, FIXED_BODY, CHUNK_SIZE, CHUNK_DATA, CHUNK_END, TRAILERS, UNTIL_CLOSE, DONE
+    }
+
+    private final StringBuilder line = new StringBuilder();
+    private final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final BodyBuffer body = new BodyBuffer();
+    private final int maxBodySize;
+    private State state = State.STATUS_LINE;
+    private boolean lineComplete;
+    private boolean started;
+    private boolean untilClose;
+    private String version;
+    private int statusCode;
+    private long remaining;
+
+    HttpResponseParser(int maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
+    boolean feed(ByteBuffer buffer) throws IOException {
+        started |= buffer.hasRemaining();
+
+        while(buffer.hasRemaining() && state != State.DONE) {
+            switch(state) {
+                case STATUS_LINE:
+                    if(readLine(buffer)) {
+                        parseStatusLine();
+                    }
+                    break;
+                case HEADERS:
+                    if(readLine(buffer)) {
+                        if(line.length() == 0) {
+                            startBody();
+                        } else {
+                            parseHeader();
+                        }
+                    }
+                    break;
+                case FIXED_BODY:
+                case CHUNK_DATA:
+                    int count = (int) Math.min(remaining, buffer.remaining());
+                    appendBody(buffer, count);
+                    remaining -= count;
+
+                    if(remaining == 0) {
+                        state = (state == State.FIXED_BODY) ? State.DONE : State.CHUNK_END;
+                    }
+                    break;
+                case CHUNK_END:
+                    if(readLine(buffer)) {
+                        state = State.CHUNK_SIZE;
+                    }
+                    break;
+                case CHUNK_SIZE:
+                    if(readLine(buffer)) {
+                        parseChunkSize();
+                    }
+                    break;
+                case TRAILERS:
+                    if(readLine(buffer) && line.length() == 0) {
+                        state = State.DONE;
+                    }
+                    break;
+                case UNTIL_CLOSE:
+                    appendBody(buffer, buffer.remaining());
+                    break;
+            }
+        }
+
+        return state == State.DONE;
+    }
+
+    void finish() throws IOException {
+        if(state == State.UNTIL_CLOSE) {
+            state = State.DONE;
+        } else if(state != State.DONE) {
+            throw new EOFException("Connection closed before the response was complete");
+        }
+    }
+
+    boolean hasStarted() {
+        return started;
+    }
+
+    boolean isKeepAlive() {
+        if(state != State.DONE || untilClose) {
+            return false;
+        }
+
+        String connection = headers.get("Connection");
+
+        if(connection != null) {
+            return !connection.toLowerCase().contains("close");
+        }
+
+        return !"HTTP/1.0".equals(version);
+    }
+
+    HttpResponse getResponse() {
+        return new HttpResponse(statusCode, headers, body.toInputStream());
+    }
+
+    private void appendBody(ByteBuffer buffer, int count) throws IOException {
+        if(body.size() + (long) count > maxBodySize) {
+            throw new ResponseTooLargeException(maxBodySize);
+        }
+
+        body.write(buffer.array(), buffer.arrayOffset() + buffer.position(), count);
+        buffer.position(buffer.position() + count);
+    }
+
+    private boolean readLine(ByteBuffer buffer) throws IOException {
+        if(lineComplete) {
+            line.setLength(0);
+            lineComplete = false;
+        }
+
+        while(buffer.hasRemaining()) {
+            char c = (char) (buffer.get() & 0xFF);
+
+            if(c == '\n') {
+                if(line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+                    line.setLength(line.length() - 1);
+                }
+
+                lineComplete = true;
+                return true;
+            }
+
+            if(line.length() >= MAX_LINE_LENGTH) {
+                throw new ProtocolException("Response line is too long");
+            }
+
+            line.append(c);
+        }
+
+        return false;
+    }
+
+    private void parseStatusLine() throws IOException {
+        String[] parts = line.toString().split(" ", 3);
+
+        if(parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+            throw new ProtocolException("Invalid status line: " + line);
+        }
+
+        try {
+            statusCode = Integer.parseInt(parts[1]);
+        } catch(NumberFormatException e) {
+            throw new ProtocolException("Invalid status line: " + line);
+        }
+
+        version = parts[0];
+        state = State.HEADERS;
+    }
+
+    private void parseHeader() throws IOException {
+        int separator = line.indexOf(":");
+
+        if(separator <= 0) {
+            throw new ProtocolException("Invalid header: " + line);
+        }
+
+        headers.put(line.substring(0, separator).trim(), line.substring(separator + 1).trim());
+    }
+
+    private void startBody() throws IOException {
+        if(statusCode >= 100 && statusCode < 200) {
+            headers.clear();
+            state = State.STATUS_LINE;
+            return;
+        }
+
+        if(statusCode == 204 || statusCode == 304) {
+            state = State.DONE;
+            return;
+        }
+
+        String transferEncoding = headers.get("Transfer-Encoding");
+
+        if(transferEncoding != null && transferEncoding.toLowerCase().contains("chunked")) {
+            state = State.CHUNK_SIZE;
+            return;
+        }
+
+        String contentLength = headers.get("Content-Length");
+
+        if(contentLength != null) {
+            try {
+                remaining = Long.parseLong(contentLength);
+            } catch(NumberFormatException e) {
+                throw new ProtocolException("Invalid Content-Length: " + contentLength);
+            }
+
+            if(remaining > maxBodySize) {
+                throw new ResponseTooLargeException(maxBodySize);
+            }
+
+            state = (remaining == 0) ? State.DONE : State.FIXED_BODY;
+            return;
+        }
+
+        untilClose = true;
+        state = State.UNTIL_CLOSE;
+    }
+
+    private void parseChunkSize() throws IOException {
+        int extension = line.indexOf(";");
+        String size = (extension >= 0 ? line.substring(0, extension) : line.toString()).trim();
+
+        try {
+            remaining = Long.parseLong(size, 16);
+        } catch(NumberFormatException e) {
+            throw new ProtocolException("Invalid chunk size: " + size);
+        }
+
+        state = (remaining == 0) ? State.TRAILERS : State.CHUNK_DATA;
+    }
+
+    private static class BodyBuffer extends ByteArrayOutputStream {
+        private InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+
+}
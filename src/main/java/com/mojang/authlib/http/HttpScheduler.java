@@ -0,0 +1,27 @@
+package com.mojang.authlib.http;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+public final class HttpScheduler {
+
+    private HttpScheduler() {
+    }
+
+    public static ScheduledExecutorService shared() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        private static final ScheduledExecutorService INSTANCE = create();
+
+        private static ScheduledExecutorService create() {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setNameFormat("Authlib Scheduler").setDaemon(true).build());
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+    }
+
+}
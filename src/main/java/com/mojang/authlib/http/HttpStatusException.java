@@ -0,0 +1,27 @@
+package com.mojang.authlib.http;
+
+import java.io.IOException;
+
+public class HttpStatusException extends IOException {
+
+    private final int statusCode;
+    private final long retryAfterMillis;
+
+    public HttpStatusException(String endpoint, int statusCode, long retryAfterMillis) {
+        super("Server at " + endpoint + " responded with status " + statusCode);
+        this.statusCode = statusCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * The delay the server asked for through its Retry-After header, or -1 if it did not send one.
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.mojang.authlib.http;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface HttpTransport {
+
+    <T> CompletableFuture<T> execute(HttpRequest request, ResponseHandler<T> handler);
+
+    HttpConnectionPool getConnectionPool();
+
+    void close();
+
+}
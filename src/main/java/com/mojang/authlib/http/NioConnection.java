@@ -0,0 +1,101 @@
+package com.mojang.authlib.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+abstract class NioConnection implements Closeable {
+
+    private static final CompletionHandler<Integer, CompletableFuture<Integer>> READ_HANDLER = new CompletionHandler<Integer, CompletableFuture<Integer>>() {
+
+        @Override
+        public void completed(Integer result, CompletableFuture<Integer> future) {
+            future.complete(result);
+        }
+
+        @Override
+        public void failed(Throwable exc, CompletableFuture<Integer> future) {
+            future.completeExceptionally(exc);
+        }
+    };
+
+    protected final AsynchronousSocketChannel channel;
+    private final int readTimeout;
+    final RequestBuffer requestBuffer = new RequestBuffer();
+    final RequestBuffer bodyBuffer = new RequestBuffer();
+
+    protected NioConnection(AsynchronousSocketChannel channel, int readTimeout) {
+        this.channel = channel;
+        this.readTimeout = readTimeout;
+    }
+
+    abstract CompletableFuture<Integer> read(ByteBuffer dst);
+
+    abstract CompletableFuture<Void> write(ByteBuffer src);
+
+    boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    protected CompletableFuture<Integer> readChannel(ByteBuffer dst) {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        channel.read(dst, readTimeout, MILLISECONDS, future, READ_HANDLER);
+        return future;
+    }
+
+    protected CompletableFuture<Void> writeChannel(ByteBuffer src) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        writeChannel(src, future);
+        return future;
+    }
+
+    private void writeChannel(ByteBuffer src, CompletableFuture<Void> future) {
+        channel.write(src, readTimeout, MILLISECONDS, null, new CompletionHandler<Integer, Void>() {
+
+            @Override
+            public void completed(Integer result, Void attachment) {
+                if(src.hasRemaining()) {
+                    writeChannel(src, future);
+                } else {
+                    future.complete(null);
+                }
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+                future.completeExceptionally(exc);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch(IOException ignored) {}
+    }
+
+    static class Plain extends NioConnection {
+
+        Plain(AsynchronousSocketChannel channel, int readTimeout) {
+            super(channel, readTimeout);
+        }
+
+        @Override
+        CompletableFuture<Integer> read(ByteBuffer dst) {
+            return readChannel(dst);
+        }
+
+        @Override
+        CompletableFuture<Void> write(ByteBuffer src) {
+            return writeChannel(src);
+        }
+
+    }
+
+}
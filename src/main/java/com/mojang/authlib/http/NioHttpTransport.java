@@ -0,0 +1,447 @@
+package com.mojang.authlib.http;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.lang3.Validate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.apache.commons.io.Charsets.UTF_8;
+
+/**
+ * Asynchronous HTTP/1.1 transport built on NIO.2 channels. All connections share one channel group,
+ * so a single event loop thread can carry any number of in-flight requests, and idle keep-alive
+ * connections are parked in the {@link HttpConnectionPool}. Connections are always made directly, so
+ * services configured with a proxy refuse this transport. Host names are resolved on a separate thread,
+ * since the JDK only offers blocking lookups, and the slow parts of TLS handshakes run on separate threads too.
+ */
+public class NioHttpTransport implements HttpTransport {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String USER_AGENT = "Java/" + System.getProperty("java.version");
+    private static final int BUFFER_SIZE = 8192;
+    private static final int RESOLVER_THREADS = 2;
+    private static final int TLS_TASK_THREADS = 2;
+
+    private final AsynchronousChannelGroup group;
+    private final ScheduledExecutorService timer;
+    private final ExecutorService resolver;
+    private final ExecutorService tlsTasks;
+    private final HttpConnectionPool pool;
+    private final SSLContext sslContext;
+    private final int connectTimeout;
+    private final int readTimeout;
+
+    public NioHttpTransport() throws IOException {
+        this(new HttpConnectionPool(), 1, 15000, 15000);
+    }
+
+    public NioHttpTransport(Proxy proxy) throws IOException {
+        this();
+        checkProxy(proxy);
+    }
+
+    public NioHttpTransport(HttpConnectionPool pool, int threads, int connectTimeout, int readTimeout) throws IOException {
+        this(AsynchronousChannelGroup.withFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("Authlib NIO #%d").setDaemon(true).build()),
+                pool, defaultSslContext(), connectTimeout, readTimeout);
+    }
+
+    public NioHttpTransport(AsynchronousChannelGroup group, HttpConnectionPool pool, SSLContext sslContext, int connectTimeout, int readTimeout) {
+        Validate.notNull(group);
+        Validate.notNull(pool);
+        Validate.notNull(sslContext);
+        Validate.isTrue(connectTimeout > 0 && readTimeout > 0, "Timeouts must be positive");
+
+        this.group = group;
+        this.pool = pool;
+        this.sslContext = sslContext;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("Authlib NIO Timer").setDaemon(true).build());
+        this.resolver = Executors.newFixedThreadPool(RESOLVER_THREADS, new ThreadFactoryBuilder().setNameFormat("Authlib NIO Resolver #%d").setDaemon(true).build());
+        this.tlsTasks = Executors.newFixedThreadPool(TLS_TASK_THREADS, new ThreadFactoryBuilder().setNameFormat("Authlib NIO TLS #%d").setDaemon(true).build());
+
+        long evictionInterval = Math.max(1, pool.getIdleTimeout(MILLISECONDS) / 2);
+        timer.scheduleWithFixedDelay(pool::evictIdleConnections, evictionInterval, evictionInterval, MILLISECONDS);
+    }
+
+    /**
+     * Throws if the given proxy would have to be bypassed, as this transport only makes direct connections.
+     */
+    public static void checkProxy(Proxy proxy) {
+        Validate.notNull(proxy);
+        Validate.isTrue(proxy.type() == Proxy.Type.DIRECT, "NioHttpTransport cannot connect through a proxy: " + proxy);
+    }
+
+    @Override
+    public HttpConnectionPool getConnectionPool() {
+        return pool;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> execute(HttpRequest request, ResponseHandler<T> handler) {
+        Validate.notNull(request);
+        Validate.notNull(handler);
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        new Exchange<>(request, handler, result).start(true);
+        return result;
+    }
+
+    private CompletableFuture<NioConnection> connect(URL url) {
+        String host = url.getHost();
+        int port = (url.getPort() == -1) ? url.getDefaultPort() : url.getPort();
+
+        LOGGER.debug("Opening connection to " + url);
+
+        CompletableFuture<InetSocketAddress> resolved;
+
+        try {
+            resolved = CompletableFuture.supplyAsync(() -> new InetSocketAddress(host, port), resolver);
+        } catch(RejectedExecutionException e) {
+            resolved = new CompletableFuture<>();
+            resolved.completeExceptionally(new IOException("Transport has been closed", e));
+        }
+
+        return resolved.thenCompose(address -> connect(url, address));
+    }
+
+    private CompletableFuture<NioConnection> connect(URL url, InetSocketAddress address) {
+        CompletableFuture<NioConnection> future = new CompletableFuture<>();
+        String host = url.getHost();
+        int port = address.getPort();
+        boolean secure = "https".equalsIgnoreCase(url.getProtocol());
+
+        try {
+            if(address.isUnresolved()) {
+                throw new UnknownHostException(host);
+            }
+
+            AsynchronousSocketChannel channel = AsynchronousSocketChannel.open(group);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+            ScheduledFuture<?> timeout = timer.schedule(() -> {
+                if(future.completeExceptionally(new SocketTimeoutException("connect timed out"))) {
+                    closeQuietly(channel);
+                }
+            }, connectTimeout, MILLISECONDS);
+
+            channel.connect(address, null, new CompletionHandler<Void, Void>() {
+
+                @Override
+                public void completed(Void result, Void attachment) {
+                    timeout.cancel(false);
+
+                    if(!secure) {
+                        future.complete(new NioConnection.Plain(channel, readTimeout));
+                        return;
+                    }
+
+                    TlsNioConnection connection = new TlsNioConnection(channel, readTimeout, createEngine(host, port), tlsTasks);
+                    connection.handshake().whenComplete((ignored, error) -> {
+                        if(error != null) {
+                            connection.close();
+                            future.completeExceptionally(unwrap(error));
+                        } else {
+                            future.complete(connection);
+                        }
+                    });
+                }
+
+                @Override
+                public void failed(Throwable exc, Void attachment) {
+                    timeout.cancel(false);
+                    closeQuietly(channel);
+                    future.completeExceptionally(exc);
+                }
+            });
+        } catch(IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    private SSLEngine createEngine(String host, int port) {
+        SSLEngine engine = sslContext.createSSLEngine(host, port);
+        engine.setUseClientMode(true);
+
+        SSLParameters parameters = engine.getSSLParameters();
+        parameters.setEndpointIdentificationAlgorithm("HTTPS");
+        parameters.setServerNames(Collections.singletonList(new SNIHostName(host)));
+        engine.setSSLParameters(parameters);
+
+        return engine;
+    }
+
+    private class Exchange<T> {
+        private final HttpRequest request;
+        private final ResponseHandler<T> handler;
+        private final CompletableFuture<T> result;
+        private final String route;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private NioConnection connection;
+        private HttpResponseParser parser;
+        private ByteBuffer buffer;
+        private boolean reused;
+
+        private Exchange(HttpRequest request, ResponseHandler<T> handler, CompletableFuture<T> result) {
+            this.request = request;
+            this.handler = handler;
+            this.result = result;
+            this.route = request.getEndpoint();
+        }
+
+        private void start(boolean allowRetry) {
+            CompletableFuture<Closeable> acquired = pool.acquire(route);
+            ScheduledFuture<?> timeout = timer.schedule(() -> {
+                acquired.completeExceptionally(new PoolTimeoutException(route));
+            }, connectTimeout, MILLISECONDS);
+
+            acquired.whenComplete((idle, error) -> {
+                timeout.cancel(false);
+
+                if(error != null) {
+                    fail(error);
+                } else if(idle != null) {
+                    reused = true;
+                    send((NioConnection) idle, allowRetry);
+                } else {
+                    connect(request.getUrl()).whenComplete((created, error2) -> {
+                        if(error2 != null) {
+                            pool.release(route, null, false);
+                            fail(error2);
+                        } else {
+                            pool.recordCreated();
+                            send(created, allowRetry);
+                        }
+                    });
+                }
+            });
+        }
+
+        private void send(NioConnection connection, boolean allowRetry) {
+            this.connection = connection;
+            this.parser = new HttpResponseParser(request.getMaxResponseSize());
+            this.released.set(false);
+
+            // Cancelled while the connection was being acquired, so the connection is untouched and can be kept
+            if(result.isDone()) {
+                release(true);
+                return;
+            }
+
+            result.whenComplete((response, error) -> {
+                if(result.isCancelled()) {
+                    release(false);
+                }
+            });
+
+            ByteBuffer encoded;
+
+            try {
+                encoded = encode(request, connection);
+            } catch(IOException | RuntimeException e) {
+                release(false);
+                fail(e);
+                return;
+            }
+
+            connection.write(encoded).whenComplete((ignored, error) -> {
+                if(error != null) {
+                    failed(error, allowRetry);
+                    return;
+                }
+
+                LOGGER.debug("Reading data from " + request.getUrl());
+
+                if(buffer == null) {
+                    buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                }
+
+                read(allowRetry);
+            });
+        }
+
+        private void read(boolean allowRetry) {
+            buffer.clear();
+
+            connection.read(buffer).whenComplete((count, error) -> {
+                if(error != null) {
+                    failed(error, allowRetry);
+                    return;
+                }
+
+                try {
+                    if(count < 0) {
+                        if(!parser.hasStarted()) {
+                            failed(new EOFException("Connection closed before a response was received"), allowRetry);
+                            return;
+                        }
+
+                        parser.finish();
+                        complete();
+                        return;
+                    }
+
+                    buffer.flip();
+
+                    if(parser.feed(buffer)) {
+                        complete();
+                    } else if(!result.isDone()) {
+                        read(allowRetry);
+                    }
+                } catch(IOException | RuntimeException e) {
+                    release(false);
+                    fail(e);
+                }
+            });
+        }
+
+        private void complete() throws IOException {
+            HttpResponse response = parser.getResponse();
+
+            LOGGER.debug("Successful read, server response was " + response.getStatusCode());
+
+            release(parser.isKeepAlive());
+            result.complete(handler.handleResponse(response));
+        }
+
+        private void failed(Throwable error, boolean allowRetry) {
+            release(false);
+
+            // Cancelling closes the connection, which is what made this read or write fail
+            if(result.isDone()) {
+                return;
+            }
+
+            // A pooled connection may have been closed by the server while idle; idempotent requests get one more go on a fresh connection
+            if(reused && allowRetry && !parser.hasStarted() && "GET".equals(request.getMethod())) {
+                LOGGER.debug("Pooled connection to " + route + " went stale, retrying");
+                pool.evictIdleConnections(route);
+                reused = false;
+                start(false);
+                return;
+            }
+
+            fail(error);
+        }
+
+        private void release(boolean reusable) {
+            if(connection != null && released.compareAndSet(false, true)) {
+                pool.release(route, connection, reusable && connection.isOpen());
+            }
+        }
+
+        private void fail(Throwable error) {
+            Throwable cause = unwrap(error);
+            LOGGER.debug("Request failed", cause);
+            result.completeExceptionally(cause);
+        }
+    }
+
+    // Connections carry one request at a time, so their buffers are reused for every request they send
+    private static ByteBuffer encode(HttpRequest request, NioConnection connection) throws IOException {
+        URL url = request.getUrl();
+        String file = url.getFile();
+        RequestBuffer head = connection.requestBuffer;
+        RequestBuffer body = connection.bodyBuffer;
+
+        head.reset();
+        body.reset();
+
+        head.writeAscii(request.getMethod());
+        head.writeAscii(" ");
+        head.writeAscii(file.isEmpty() ? "/" : file);
+        head.writeAscii(" HTTP/1.1\r\nHost: ");
+        head.writeAscii(url.getHost());
+
+        if(url.getPort() != -1 && url.getPort() != url.getDefaultPort()) {
+            head.writeAscii(":");
+            head.writeAscii(url.getPort());
+        }
+
+        head.writeAscii("\r\nUser-Agent: ");
+        head.writeAscii(USER_AGENT);
+        head.writeAscii("\r\nAccept: */*");
+
+        if(request.hasBody()) {
+            request.getBody().writeTo(body);
+
+            if(LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Writing POST data to " + url + ": " + new String(body.array(), 0, body.size(), UTF_8));
+            }
+
+            head.writeAscii("\r\nContent-Type: ");
+            head.writeAscii(request.getBody().getContentType());
+            head.writeAscii("\r\nContent-Length: ");
+            head.writeAscii(body.size());
+        }
+
+        head.writeAscii("\r\n\r\n");
+        head.write(body);
+
+        return head.toByteBuffer();
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        resolver.shutdownNow();
+        tlsTasks.shutdownNow();
+        pool.close();
+
+        try {
+            group.shutdownNow();
+        } catch(IOException e) {
+            LOGGER.warn("Couldn't shut down NIO channel group", e);
+        }
+    }
+
+    private static SSLContext defaultSslContext() throws IOException {
+        try {
+            return SSLContext.getDefault();
+        } catch(NoSuchAlgorithmException e) {
+            throw new IOException("No default TLS context available", e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return (throwable instanceof CompletionException && throwable.getCause() != null) ? throwable.getCause() : throwable;
+    }
+
+    private static void closeQuietly(AsynchronousSocketChannel channel) {
+        try {
+            channel.close();
+        } catch(IOException ignored) {}
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.mojang.authlib.http;
+
+import java.net.SocketTimeoutException;
+
+/**
+ * Thrown when no connection slot for a route became free in time. The request never left this process, so
+ * it says nothing about the health of the server.
+ */
+public class PoolTimeoutException extends SocketTimeoutException {
+
+    public PoolTimeoutException(String route) {
+        super("Timed out waiting for a connection to " + route);
+    }
+
+}
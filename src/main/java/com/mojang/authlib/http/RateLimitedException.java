@@ -0,0 +1,11 @@
+package com.mojang.authlib.http;
+
+import java.io.IOException;
+
+public class RateLimitedException extends IOException {
+
+    public RateLimitedException(String host) {
+        super("Request rate limit for " + host + " exceeded");
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.mojang.authlib.http;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket implemented as a generic cell rate algorithm: the only state is the theoretical arrival time
+ * of the next request, which is advanced with a compare-and-set so no lock is ever taken.
+ */
+public class RateLimiter {
+
+    public enum Mode {
+        /** Requests over the rate are delayed until a token is available, up to the max queue delay. */
+        QUEUE,
+        /** Requests over the rate fail immediately with a {@link RateLimitedException}. */
+        FAIL_FAST
+    }
+
+    private final long emissionInterval;
+    private final long tolerance;
+    private final Mode mode;
+    private final long maxQueueDelay;
+    private final AtomicLong theoreticalArrival;
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public RateLimiter(int permits, long period, TimeUnit unit) {
+        this(permits, period, unit, 1, Mode.QUEUE, 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param burst how many requests may be sent back to back after the limiter has been idle
+     */
+    public RateLimiter(int permits, long period, TimeUnit unit, int burst, Mode mode, long maxQueueDelay, TimeUnit queueUnit) {
+        Validate.isTrue(permits > 0 && period > 0, "Rate must be positive");
+        Validate.isTrue(burst > 0, "Burst must be positive");
+        Validate.isTrue(maxQueueDelay >= 0, "Max queue delay must not be negative");
+        Validate.notNull(unit);
+        Validate.notNull(mode);
+        Validate.notNull(queueUnit);
+
+        this.emissionInterval = Math.max(1, unit.toNanos(period) / permits);
+        this.tolerance = emissionInterval * (burst - 1);
+        this.mode = mode;
+        this.maxQueueDelay = queueUnit.toNanos(maxQueueDelay);
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Takes a token, returning how many nanoseconds the caller has to wait before using it, or -1 if no token
+     * can be handed out within the max queue delay (or at all, when failing fast).
+     */
+    public long reserve() {
+        long now = System.nanoTime();
+        long limit = (mode == Mode.FAIL_FAST) ? 0 : maxQueueDelay;
+
+        while(true) {
+            long arrival = theoreticalArrival.get();
+            long base = (arrival - now > 0) ? arrival : now;
+            long delay = base - tolerance - now;
+
+            if(delay > limit) {
+                rejected.incrementAndGet();
+                return -1;
+            }
+
+            if(theoreticalArrival.compareAndSet(arrival, base + emissionInterval)) {
+                if(delay > 0) {
+                    throttled.incrementAndGet();
+                    return delay;
+                }
+
+                return 0;
+            }
+        }
+    }
+
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+
+        while(true) {
+            long arrival = theoreticalArrival.get();
+            long base = (arrival - now > 0) ? arrival : now;
+
+            if(base - tolerance - now > 0) {
+                return false;
+            }
+
+            if(theoreticalArrival.compareAndSet(arrival, base + emissionInterval)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Holds back every request until the given delay has passed, used when the server answered with a
+     * Retry-After header. Never shortens a pause that is already in effect.
+     */
+    public void pause(long delay, TimeUnit unit) {
+        long until = System.nanoTime() + unit.toNanos(delay) + tolerance;
+
+        while(true) {
+            long arrival = theoreticalArrival.get();
+
+            if(arrival - until >= 0 || theoreticalArrival.compareAndSet(arrival, until)) {
+                return;
+            }
+        }
+    }
+
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.mojang.authlib.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface RequestBody {
+
+    String getContentType();
+
+    void writeTo(OutputStream out) throws IOException;
+
+}
@@ -0,0 +1,61 @@
+package com.mojang.authlib.http;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+class RequestBuffer extends ByteArrayOutputStream {
+
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<RequestBuffer> LOCAL = ThreadLocal.withInitial(RequestBuffer::new);
+
+    RequestBuffer() {
+        super(1024);
+    }
+
+    static RequestBuffer local() {
+        RequestBuffer buffer = LOCAL.get();
+        buffer.reset();
+        return buffer;
+    }
+
+    // Buffers that had to grow for an unusually large body are not kept around
+    static void recycle(RequestBuffer buffer) {
+        if(buffer.buf.length > MAX_RETAINED_CAPACITY) {
+            LOCAL.remove();
+        }
+    }
+
+    void writeAscii(CharSequence value) {
+        int length = value.length();
+        ensure(length);
+
+        for(int i = 0; i < length; i++) {
+            buf[count++] = (byte) value.charAt(i);
+        }
+    }
+
+    void writeAscii(long value) {
+        writeAscii(Long.toString(value));
+    }
+
+    void write(RequestBuffer other) {
+        write(other.buf, 0, other.count);
+    }
+
+    byte[] array() {
+        return buf;
+    }
+
+    ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buf, 0, count);
+    }
+
+    private void ensure(int additional) {
+        if(count + additional > buf.length) {
+            byte[] larger = new byte[Math.max(buf.length * 2, count + additional)];
+            System.arraycopy(buf, 0, larger, 0, count);
+            buf = larger;
+        }
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.mojang.authlib.http;
+
+import java.io.IOException;
+
+public interface ResponseHandler<T> {
+
+    /**
+     * Consumes a response. The body stream is only valid until this method returns.
+     */
+    T handleResponse(HttpResponse response) throws IOException;
+
+}
@@ -0,0 +1,11 @@
+package com.mojang.authlib.http;
+
+import java.io.IOException;
+
+public class ResponseTooLargeException extends IOException {
+
+    public ResponseTooLargeException(long limit) {
+        super("Response body exceeds " + limit + " bytes");
+    }
+
+}
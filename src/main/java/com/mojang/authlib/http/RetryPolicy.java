@@ -0,0 +1,253 @@
+package com.mojang.authlib.http;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Retries failed requests after a decorrelated-jitter backoff scheduled on an executor, never by sleeping
+ * the calling thread. Each endpoint has a retry budget that is topped up by a fraction of a token per
+ * request, so an unhealthy endpoint cannot be flooded with retries.
+ */
+public class RetryPolicy {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final long TOKEN = 1000;
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_BASE_DELAY_MILLIS = 100;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 5000;
+    public static final double DEFAULT_BUDGET_RATIO = 0.2;
+    public static final int DEFAULT_MIN_BUDGET = 10;
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final long depositPerRequest;
+    private final long maxBalance;
+    private final ConcurrentMap<String, AtomicLong> budgets = new ConcurrentHashMap<>();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    public RetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, MILLISECONDS, DEFAULT_BUDGET_RATIO, DEFAULT_MIN_BUDGET);
+    }
+
+    /**
+     * @param budgetRatio retries allowed per request sent to an endpoint
+     * @param minBudget   retries an endpoint may spend before its budget has been topped up by any traffic
+     */
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, TimeUnit unit, double budgetRatio, int minBudget) {
+        Validate.isTrue(maxAttempts > 0, "Max attempts must be positive");
+        Validate.isTrue(baseDelay > 0 && maxDelay >= baseDelay, "Delays must be positive and max delay must not be below base delay");
+        Validate.isTrue(budgetRatio >= 0, "Budget ratio must not be negative");
+        Validate.isTrue(minBudget >= 0, "Min budget must not be negative");
+        Validate.notNull(unit);
+
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = unit.toMillis(baseDelay);
+        this.maxDelayMillis = unit.toMillis(maxDelay);
+        this.depositPerRequest = (long) (budgetRatio * TOKEN);
+        this.maxBalance = Math.max(minBudget, 1) * TOKEN;
+    }
+
+    public static RetryPolicy none() {
+        return new RetryPolicy(1, 1, 1, MILLISECONDS, 0, 0);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    public long getBudgetExhaustedCount() {
+        return exhausted.get();
+    }
+
+    /**
+     * @param scheduler times the delays between attempts, and is never used to send them
+     * @param executor  sends the attempts after the first, which may block when the transport does
+     */
+    public <T> CompletableFuture<T> execute(String endpoint, boolean idempotent, ScheduledExecutorService scheduler, Executor executor, Supplier<CompletableFuture<T>> attempt) {
+        if(maxAttempts == 1) {
+            return attempt.get();
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        AtomicLong budget = getBudget(endpoint);
+        AtomicReference<CompletableFuture<T>> current = new AtomicReference<>();
+        deposit(budget);
+
+        result.whenComplete((value, error) -> {
+            CompletableFuture<T> inFlight = current.get();
+
+            if(result.isCancelled() && inFlight != null) {
+                inFlight.cancel(true);
+            }
+        });
+
+        run(endpoint, idempotent, scheduler, executor, attempt, budget, current, result, 1, baseDelayMillis);
+        return result;
+    }
+
+    private <T> void run(String endpoint, boolean idempotent, ScheduledExecutorService scheduler, Executor executor, Supplier<CompletableFuture<T>> attempt,
+                         AtomicLong budget, AtomicReference<CompletableFuture<T>> current, CompletableFuture<T> result, int attemptNumber, long previousDelay) {
+        if(result.isDone()) {
+            return;
+        }
+
+        CompletableFuture<T> future = attempt.get();
+        current.set(future);
+
+        future.whenComplete((value, error) -> {
+            if(error == null) {
+                result.complete(value);
+                return;
+            }
+
+            Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+
+            if(result.isDone() || attemptNumber >= maxAttempts || !isRetryable(cause, idempotent)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+
+            long delay = nextDelay(previousDelay);
+
+            if(cause instanceof HttpStatusException && ((HttpStatusException) cause).getRetryAfterMillis() >= 0) {
+                long retryAfter = ((HttpStatusException) cause).getRetryAfterMillis();
+
+                // Waiting out a long Retry-After would hold the caller for longer than failing does
+                if(retryAfter > maxDelayMillis) {
+                    result.completeExceptionally(cause);
+                    return;
+                }
+
+                delay = Math.max(delay, retryAfter);
+            }
+
+            if(!withdraw(budget)) {
+                exhausted.incrementAndGet();
+                LOGGER.debug("Retry budget for {} is exhausted", endpoint);
+                result.completeExceptionally(cause);
+                return;
+            }
+
+            retries.incrementAndGet();
+            LOGGER.debug("Retrying request to {} in {} ms (attempt {} of {}) after: {}", endpoint, delay, attemptNumber + 1, maxAttempts, cause.toString());
+
+            // The scheduler only has a single thread, so a blocking transport must not run the retry on it
+            long nextDelay = delay;
+            scheduler.schedule(() -> {
+                try {
+                    executor.execute(() -> run(endpoint, idempotent, scheduler, executor, attempt, budget, current, result, attemptNumber + 1, nextDelay));
+                } catch(RejectedExecutionException e) {
+                    result.completeExceptionally(cause);
+                }
+            }, delay, MILLISECONDS);
+        });
+    }
+
+    protected boolean isRetryable(Throwable error, boolean idempotent) {
+        if(error instanceof HttpStatusException) {
+            int status = ((HttpStatusException) error).getStatusCode();
+
+            if(status == 429 || status == 503) {
+                return true;
+            }
+
+            return idempotent && (status == 500 || status == 502 || status == 504);
+        }
+
+        if(error instanceof ConnectException) {
+            return true;
+        }
+
+        if(error instanceof SocketTimeoutException) {
+            return idempotent || "connect timed out".equals(error.getMessage());
+        }
+
+        if(error instanceof CircuitBreakerOpenException || error instanceof RateLimitedException || error instanceof ResponseTooLargeException
+                || error instanceof InterruptedIOException) {
+            return false;
+        }
+
+        return idempotent && error instanceof IOException;
+    }
+
+    // Decorrelated jitter: each delay is drawn between the base delay and three times the previous one
+    private long nextDelay(long previousDelay) {
+        long upper = Math.min(maxDelayMillis, Math.max(baseDelayMillis, previousDelay * 3));
+
+        if(upper <= baseDelayMillis) {
+            return baseDelayMillis;
+        }
+
+        return ThreadLocalRandom.current().nextLong(baseDelayMillis, upper + 1);
+    }
+
+    private AtomicLong getBudget(String endpoint) {
+        AtomicLong budget = budgets.get(endpoint);
+
+        if(budget == null) {
+            AtomicLong created = new AtomicLong(maxBalance);
+            budget = budgets.putIfAbsent(endpoint, created);
+
+            if(budget == null) {
+                budget = created;
+            }
+        }
+
+        return budget;
+    }
+
+    private void deposit(AtomicLong budget) {
+        long balance;
+
+        do {
+            balance = budget.get();
+
+            if(balance >= maxBalance) {
+                return;
+            }
+        } while(!budget.compareAndSet(balance, Math.min(maxBalance, balance + depositPerRequest)));
+    }
+
+    private static boolean withdraw(AtomicLong budget) {
+        long balance;
+
+        do {
+            balance = budget.get();
+
+            if(balance < TOKEN) {
+                return false;
+            }
+        } while(!budget.compareAndSet(balance, balance - TOKEN));
+
+        return true;
+    }
+
+}
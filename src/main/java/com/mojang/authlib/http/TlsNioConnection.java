@@ -0,0 +1,248 @@
+package com.mojang.authlib.http;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static javax.net.ssl.SSLEngineResult.HandshakeStatus.NEED_TASK;
+import static javax.net.ssl.SSLEngineResult.HandshakeStatus.NEED_WRAP;
+
+class TlsNioConnection extends NioConnection {
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final SSLEngine engine;
+    private final Executor taskExecutor;
+    private ByteBuffer netIn;
+    private ByteBuffer netOut;
+    private ByteBuffer appIn;
+    private boolean closed;
+
+    TlsNioConnection(AsynchronousSocketChannel channel, int readTimeout, SSLEngine engine, Executor taskExecutor) {
+        super(channel, readTimeout);
+        this.engine = engine;
+        this.taskExecutor = taskExecutor;
+        this.netIn = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+        this.netOut = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+        this.appIn = ByteBuffer.allocate(engine.getSession().getApplicationBufferSize());
+        this.appIn.flip();
+    }
+
+    CompletableFuture<Void> handshake() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
+        try {
+            engine.beginHandshake();
+            continueHandshake(future);
+        } catch(SSLException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    private void continueHandshake(CompletableFuture<Void> future) {
+        try {
+            while(true) {
+                switch(engine.getHandshakeStatus()) {
+                    case NEED_TASK:
+                        runDelegatedTasks().whenComplete((result, error) -> {
+                            if(error != null) {
+                                future.completeExceptionally(error);
+                            } else {
+                                continueHandshake(future);
+                            }
+                        });
+                        return;
+                    case NEED_WRAP:
+                        wrap(EMPTY).whenComplete((result, error) -> {
+                            if(error != null) {
+                                future.completeExceptionally(error);
+                            } else {
+                                continueHandshake(future);
+                            }
+                        });
+                        return;
+                    case NEED_UNWRAP:
+                        if(!unwrap()) {
+                            fillNetIn().whenComplete((read, error) -> {
+                                if(error != null) {
+                                    future.completeExceptionally(error);
+                                } else if(read < 0) {
+                                    future.completeExceptionally(new EOFException("Connection closed during TLS handshake"));
+                                } else {
+                                    continueHandshake(future);
+                                }
+                            });
+                            return;
+                        }
+
+                        if(closed) {
+                            throw new SSLException("Connection closed during TLS handshake");
+                        }
+                        break;
+                    default:
+                        future.complete(null);
+                        return;
+                }
+            }
+        } catch(SSLException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    @Override
+    CompletableFuture<Integer> read(ByteBuffer dst) {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        continueRead(dst, future);
+        return future;
+    }
+
+    private void continueRead(ByteBuffer dst, CompletableFuture<Integer> future) {
+        try {
+            while(true) {
+                if(appIn.hasRemaining()) {
+                    int count = Math.min(appIn.remaining(), dst.remaining());
+                    ByteBuffer slice = appIn.duplicate();
+                    slice.limit(slice.position() + count);
+                    dst.put(slice);
+                    appIn.position(appIn.position() + count);
+                    future.complete(count);
+                    return;
+                }
+
+                if(closed) {
+                    future.complete(-1);
+                    return;
+                }
+
+                SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+
+                if(status == NEED_TASK) {
+                    runDelegatedTasks().whenComplete((result, error) -> {
+                        if(error != null) {
+                            future.completeExceptionally(error);
+                        } else {
+                            continueRead(dst, future);
+                        }
+                    });
+                    return;
+                } else if(status == NEED_WRAP) {
+                    wrap(EMPTY).whenComplete((result, error) -> {
+                        if(error != null) {
+                            future.completeExceptionally(error);
+                        } else {
+                            continueRead(dst, future);
+                        }
+                    });
+                    return;
+                } else if(!unwrap()) {
+                    fillNetIn().whenComplete((read, error) -> {
+                        if(error != null) {
+                            future.completeExceptionally(error);
+                        } else if(read < 0) {
+                            future.complete(-1);
+                        } else {
+                            continueRead(dst, future);
+                        }
+                    });
+                    return;
+                }
+            }
+        } catch(SSLException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    @Override
+    CompletableFuture<Void> write(ByteBuffer src) {
+        if(!src.hasRemaining()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return wrap(src).thenCompose(result -> write(src));
+    }
+
+    private CompletableFuture<Void> wrap(ByteBuffer src) {
+        try {
+            while(true) {
+                netOut.clear();
+                SSLEngineResult result = engine.wrap(src, netOut);
+
+                if(result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                    netOut = ByteBuffer.allocate(netOut.capacity() * 2);
+                    continue;
+                }
+
+                if(result.getStatus() == SSLEngineResult.Status.CLOSED && src.hasRemaining()) {
+                    throw new SSLException("TLS engine closed");
+                }
+
+                break;
+            }
+        } catch(SSLException e) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        netOut.flip();
+        return writeChannel(netOut);
+    }
+
+    private boolean unwrap() throws SSLException {
+        netIn.flip();
+        appIn.compact();
+
+        try {
+            SSLEngineResult result = engine.unwrap(netIn, appIn);
+
+            switch(result.getStatus()) {
+                case BUFFER_UNDERFLOW:
+                    return false;
+                case BUFFER_OVERFLOW:
+                    ByteBuffer larger = ByteBuffer.allocate(appIn.capacity() + engine.getSession().getApplicationBufferSize());
+                    appIn.flip();
+                    larger.put(appIn);
+                    appIn = larger;
+                    return true;
+                case CLOSED:
+                    closed = true;
+                    return true;
+                default:
+                    return true;
+            }
+        } finally {
+            netIn.compact();
+            appIn.flip();
+        }
+    }
+
+    private CompletableFuture<Integer> fillNetIn() {
+        if(!netIn.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(netIn.capacity() * 2);
+            netIn.flip();
+            larger.put(netIn);
+            netIn = larger;
+        }
+
+        return readChannel(netIn);
+    }
+
+    // Delegated tasks validate certificate chains and can take a while, so they must not hold up the event loop
+    private CompletableFuture<Void> runDelegatedTasks() {
+        return CompletableFuture.runAsync(() -> {
+            Runnable task;
+
+            while((task = engine.getDelegatedTask()) != null) {
+                task.run();
+            }
+        }, taskExecutor);
+    }
+
+}
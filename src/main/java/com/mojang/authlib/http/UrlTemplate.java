@@ -0,0 +1,166 @@
+package com.mojang.authlib.http;
+
+import org.apache.commons.lang3.Validate;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.commons.io.Charsets.UTF_8;
+
+/**
+ * A URL with {@code {name}} placeholders, split into literal segments once so that expanding it only
+ * appends the percent-encoded values to a reused per-thread builder.
+ */
+public class UrlTemplate {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final int MAX_RETAINED_CAPACITY = 2048;
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final String template;
+    private final String[] literals;
+    private final boolean[] inQuery;
+    private final int expectedLength;
+
+    private UrlTemplate(String template, String[] literals, boolean[] inQuery) {
+        this.template = template;
+        this.literals = literals;
+        this.inQuery = inQuery;
+
+        int length = 0;
+
+        for(String literal : literals) {
+            length += literal.length();
+        }
+
+        this.expectedLength = length + inQuery.length * 32;
+    }
+
+    public static UrlTemplate compile(String template) {
+        Validate.notNull(template);
+
+        List<String> literals = new ArrayList<>();
+        List<Boolean> inQuery = new ArrayList<>();
+        int start = 0;
+        int open;
+
+        while((open = template.indexOf('{', start)) >= 0) {
+            int close = template.indexOf('}', open);
+
+            if(close < 0) {
+                throw new Error("Unterminated placeholder in URL template " + template);
+            }
+
+            literals.add(template.substring(start, open));
+            inQuery.add(template.lastIndexOf('?', open) >= 0);
+            start = close + 1;
+        }
+
+        literals.add(template.substring(start));
+
+        boolean[] query = new boolean[inQuery.size()];
+
+        for(int i = 0; i < query.length; i++) {
+            query[i] = inQuery.get(i);
+        }
+
+        UrlTemplate result = new UrlTemplate(template, literals.toArray(new String[literals.size()]), query);
+
+        try {
+            new URL(String.join("", result.literals));
+        } catch(MalformedURLException ex) {
+            throw new Error("Couldn't create constant for " + template, ex);
+        }
+
+        return result;
+    }
+
+    public int getPlaceholderCount() {
+        return inQuery.length;
+    }
+
+    public URL expand(Object... values) {
+        Validate.isTrue(values.length == inQuery.length, "Expected %d values for %s", inQuery.length, template);
+
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+        builder.ensureCapacity(expectedLength);
+
+        for(int i = 0; i < values.length; i++) {
+            builder.append(literals[i]);
+
+            if(values[i] != null) {
+                encode(builder, values[i].toString(), inQuery[i]);
+            }
+        }
+
+        builder.append(literals[values.length]);
+
+        try {
+            return new URL(builder.toString());
+        } catch(MalformedURLException ex) {
+            throw new IllegalArgumentException("Could not expand URL template " + template, ex);
+        } finally {
+            if(builder.capacity() > MAX_RETAINED_CAPACITY) {
+                BUILDER.remove();
+            }
+        }
+    }
+
+    // Same output as URLEncoder for query values, without the intermediate strings it builds
+    static void encode(StringBuilder builder, String value, boolean query) {
+        int length = value.length();
+        int i = 0;
+
+        while(i < length && isUnreserved(value.charAt(i))) {
+            i++;
+        }
+
+        if(i == length) {
+            builder.append(value);
+            return;
+        }
+
+        builder.append(value, 0, i);
+
+        for(; i < length; i++) {
+            char c = value.charAt(i);
+
+            if(isUnreserved(c)) {
+                builder.append(c);
+            } else if(c == ' ') {
+                builder.append(query ? "+" : "%20");
+            } else if(c < 0x80) {
+                appendEscaped(builder, c);
+            } else {
+                int end = i + 1;
+
+                if(Character.isHighSurrogate(c) && end < length && Character.isLowSurrogate(value.charAt(end))) {
+                    end++;
+                }
+
+                for(byte b : value.substring(i, end).getBytes(UTF_8)) {
+                    appendEscaped(builder, b & 0xFF);
+                }
+
+                i = end - 1;
+            }
+        }
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_' || c == '.' || c == '*';
+    }
+
+    private static void appendEscaped(StringBuilder builder, int b) {
+        builder.append('%').append(HEX[b >> 4]).append(HEX[b & 0xF]);
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+
+}
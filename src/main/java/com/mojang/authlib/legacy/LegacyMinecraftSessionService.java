@@ -3,6 +3,7 @@ package com.mojang.authlib.legacy;
 import com.mojang.authlib.GameProfile;
 import com.mojang.authlib.exceptions.AuthenticationException;
 import com.mojang.authlib.exceptions.AuthenticationUnavailableException;
+import com.mojang.authlib.http.UrlTemplate;
 import com.mojang.authlib.minecraft.HttpMinecraftSessionService;
 import com.mojang.authlib.minecraft.MinecraftProfileTexture;
 
@@ -10,14 +11,14 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
-
-import static com.mojang.authlib.HttpAuthenticationService.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class LegacyMinecraftSessionService extends HttpMinecraftSessionService
 {
     private static final String BASE_URL = "http://session.minecraft.net/game/";
-    private static final URL JOIN_URL = constantURL("http://session.minecraft.net/game/joinserver.jsp");
-    private static final URL CHECK_URL = constantURL("http://session.minecraft.net/game/checkserver.jsp");
+    private static final UrlTemplate JOIN_URL = UrlTemplate.compile("http://session.minecraft.net/game/joinserver.jsp?user={user}&sessionId={sessionId}&serverId={serverId}");
+    private static final UrlTemplate CHECK_URL = UrlTemplate.compile("http://session.minecraft.net/game/checkserver.jsp?user={user}&serverId={serverId}");
     
     protected LegacyMinecraftSessionService(LegacyAuthenticationService authenticationService) {
         super(authenticationService);
@@ -25,12 +26,7 @@ public class LegacyMinecraftSessionService extends HttpMinecraftSessionService
     
     @Override
     public void joinServer(GameProfile profile, String authenticationToken, String serverId) throws AuthenticationException {
-        Map<String, Object> arguments = new HashMap<>();
-        arguments.put("user", profile.getName());
-        arguments.put("sessionId", authenticationToken);
-        arguments.put("serverId", serverId);
-
-        URL url = concatenateURL(JOIN_URL, buildQuery(arguments));
+        URL url = JOIN_URL.expand(profile.getName(), authenticationToken, serverId);
 
         try {
             String response = getAuthenticationService().performGetRequest(url);
@@ -45,11 +41,7 @@ public class LegacyMinecraftSessionService extends HttpMinecraftSessionService
     
     @Override
     public GameProfile hasJoinedServer(GameProfile user, String serverId) throws AuthenticationUnavailableException {
-        Map<String, Object> arguments =  new HashMap<>();
-        arguments.put("user", user.getName());
-        arguments.put("serverId", serverId);
-
-        URL url = concatenateURL(CHECK_URL, buildQuery(arguments));
+        URL url = CHECK_URL.expand(user.getName(), serverId);
 
         try {
             String response = getAuthenticationService().performGetRequest(url);
@@ -59,6 +51,45 @@ public class LegacyMinecraftSessionService extends HttpMinecraftSessionService
         }
     }
     
+    @Override
+    public CompletableFuture<Void> joinServerAsync(GameProfile profile, String authenticationToken, String serverId) {
+        URL url = JOIN_URL.expand(profile.getName(), authenticationToken, serverId);
+
+        return submitAsync(() -> getAuthenticationService().performGetRequestAsync(url).handle((response, error) -> {
+            if(error != null) {
+                throw new CompletionException(new AuthenticationUnavailableException(unwrap(error)));
+            }
+
+            if(!response.equals("OK")) {
+                throw new CompletionException(new AuthenticationException(response));
+            }
+
+            return null;
+        }));
+    }
+
+    @Override
+    public CompletableFuture<GameProfile> hasJoinedServerAsync(GameProfile user, String serverId) {
+        URL url = CHECK_URL.expand(user.getName(), serverId);
+
+        return submitAsync(() -> getAuthenticationService().performGetRequestAsync(url).handle((response, error) -> {
+            if(error != null) {
+                throw new CompletionException(new AuthenticationUnavailableException(unwrap(error)));
+            }
+
+            return response.equals("YES") ? user : null;
+        }));
+    }
+
+    @Override
+    public CompletableFuture<GameProfile> fillProfilePropertiesAsync(GameProfile profile, boolean requireSecure) {
+        return CompletableFuture.completedFuture(profile);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+    }
+
     @Override
     public Map<MinecraftProfileTexture.Type, MinecraftProfileTexture> getTextures(GameProfile profile, boolean requireSecure) {
         return new HashMap<>();
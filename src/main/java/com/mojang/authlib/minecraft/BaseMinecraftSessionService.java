@@ -1,10 +1,33 @@
 package com.mojang.authlib.minecraft;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.mojang.authlib.AuthenticationService;
+import com.mojang.authlib.GameProfile;
+import com.mojang.authlib.exceptions.AuthenticationUnavailableException;
+import org.apache.commons.lang3.Validate;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 public abstract class BaseMinecraftSessionService implements MinecraftSessionService {
 
+    public static final int DEFAULT_THREADS = 4;
+    public static final int DEFAULT_MAX_PENDING_REQUESTS = 1024;
+
+    private static final AtomicInteger DEFAULT_PENDING_REQUESTS = new AtomicInteger();
+
     private final AuthenticationService authenticationService;
+    private final AtomicInteger pendingRequests = new AtomicInteger();
+    private volatile Executor executor;
+    private volatile int maxPendingRequests = DEFAULT_MAX_PENDING_REQUESTS;
     
     protected BaseMinecraftSessionService(AuthenticationService authenticationService) {
         this.authenticationService = authenticationService;
@@ -14,4 +37,163 @@ public abstract class BaseMinecraftSessionService implements MinecraftSessionSer
         return authenticationService;
     }
 
+    public Executor getExecutor() {
+        Executor executor = this.executor;
+        return (executor == null) ? DefaultExecutor.INSTANCE : executor;
+    }
+
+    /**
+     * Sets the executor the asynchronous methods run on, or restores the shared default when passed null.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public int getMaxPendingRequests() {
+        return maxPendingRequests;
+    }
+
+    public void setMaxPendingRequests(int maxPendingRequests) {
+        Validate.isTrue(maxPendingRequests > 0, "Max pending requests must be positive");
+        this.maxPendingRequests = maxPendingRequests;
+    }
+
+    public int getPendingRequests() {
+        return pendingRequests.get();
+    }
+
+    public static Executor createExecutor(int threads) {
+        Validate.isTrue(threads > 0, "Thread count must be positive");
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("Authlib Session Worker #%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Override
+    public CompletableFuture<Void> joinServerAsync(GameProfile profile, String authenticationToken, String serverId) {
+        return submit(() -> {
+            joinServer(profile, authenticationToken, serverId);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<GameProfile> hasJoinedServerAsync(GameProfile profile, String serverId) {
+        return submit(() -> hasJoinedServer(profile, serverId));
+    }
+
+    @Override
+    public CompletableFuture<GameProfile> fillProfilePropertiesAsync(GameProfile profile, boolean requireSecure) {
+        return submit(() -> fillProfileProperties(profile, requireSecure));
+    }
+
+    /**
+     * Runs a blocking call on the executor.
+     */
+    protected <T> CompletableFuture<T> submit(Callable<T> call) {
+        return submitAsync(() -> {
+            CompletableFuture<T> future = new CompletableFuture<>();
+
+            try {
+                future.complete(call.call());
+            } catch(Exception e) {
+                future.completeExceptionally(e);
+            }
+
+            return future;
+        });
+    }
+
+    /**
+     * Starts an asynchronous call on the executor, so that a transport that only appears to be asynchronous
+     * cannot block the caller, and counts it as pending until it completes.
+     */
+    protected <T> CompletableFuture<T> submitAsync(Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        if(pendingRequests.incrementAndGet() > maxPendingRequests) {
+            pendingRequests.decrementAndGet();
+            result.completeExceptionally(new AuthenticationUnavailableException("Too many pending session requests"));
+            return result;
+        }
+
+        result.whenComplete((value, error) -> pendingRequests.decrementAndGet());
+
+        try {
+            getExecutor().execute(() -> {
+                if(result.isDone()) {
+                    return;
+                }
+
+                CompletableFuture<T> future;
+
+                try {
+                    future = call.get();
+                } catch(RuntimeException e) {
+                    result.completeExceptionally(e);
+                    return;
+                }
+
+                result.whenComplete((value, error) -> {
+                    if(result.isCancelled()) {
+                        future.cancel(true);
+                    }
+                });
+
+                future.whenComplete((value, error) -> {
+                    if(error != null) {
+                        result.completeExceptionally((error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            });
+        } catch(RejectedExecutionException e) {
+            result.completeExceptionally(new AuthenticationUnavailableException("Session request executor rejected the request", e));
+        }
+
+        return result;
+    }
+
+    /**
+     * Runs a blocking call on the shared default executor, for session services that do not extend this class.
+     * The calls of all such services share its {@link #DEFAULT_THREADS} threads and a single limit of
+     * {@link #DEFAULT_MAX_PENDING_REQUESTS} pending calls.
+     */
+    static <T> CompletableFuture<T> runBlocking(Callable<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        if(DEFAULT_PENDING_REQUESTS.incrementAndGet() > DEFAULT_MAX_PENDING_REQUESTS) {
+            DEFAULT_PENDING_REQUESTS.decrementAndGet();
+            result.completeExceptionally(new AuthenticationUnavailableException("Too many pending session requests"));
+            return result;
+        }
+
+        result.whenComplete((value, error) -> DEFAULT_PENDING_REQUESTS.decrementAndGet());
+
+        try {
+            DefaultExecutor.INSTANCE.execute(() -> {
+                if(result.isDone()) {
+                    return;
+                }
+
+                try {
+                    result.complete(call.call());
+                } catch(Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch(RejectedExecutionException e) {
+            result.completeExceptionally(new AuthenticationUnavailableException("Session request executor rejected the request", e));
+        }
+
+        return result;
+    }
+
+    private static class DefaultExecutor {
+        private static final Executor INSTANCE = createExecutor(DEFAULT_THREADS);
+    }
+
 }
@@ -6,6 +6,7 @@ import com.mojang.authlib.exceptions.AuthenticationUnavailableException;
 import com.mojang.authlib.minecraft.MinecraftProfileTexture.Type;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface MinecraftSessionService {
 
@@ -13,8 +14,34 @@ public interface MinecraftSessionService {
 
     GameProfile hasJoinedServer(GameProfile profile, String serverId) throws AuthenticationUnavailableException;
 
+    /**
+     * Returns a new map on every call, which the caller is free to modify.
+     */
     Map<Type, MinecraftProfileTexture> getTextures(GameProfile profile, boolean requireSecure);
 
     GameProfile fillProfileProperties(GameProfile profile, boolean requireSecure);
 
+    /**
+     * The asynchronous variants never block the calling thread and complete exceptionally with an
+     * {@link AuthenticationUnavailableException} when too many requests are already pending. By default they run
+     * the blocking variants on the shared session worker threads: every service relying on these defaults, across
+     * the JVM, shares {@link BaseMinecraftSessionService#DEFAULT_THREADS} threads and
+     * {@link BaseMinecraftSessionService#DEFAULT_MAX_PENDING_REQUESTS} pending calls. Extend
+     * {@link BaseMinecraftSessionService} to use an executor and limit of its own.
+     */
+    default CompletableFuture<Void> joinServerAsync(GameProfile profile, String authenticationToken, String serverId) {
+        return BaseMinecraftSessionService.runBlocking(() -> {
+            joinServer(profile, authenticationToken, serverId);
+            return null;
+        });
+    }
+
+    default CompletableFuture<GameProfile> hasJoinedServerAsync(GameProfile profile, String serverId) {
+        return BaseMinecraftSessionService.runBlocking(() -> hasJoinedServer(profile, serverId));
+    }
+
+    default CompletableFuture<GameProfile> fillProfilePropertiesAsync(GameProfile profile, boolean requireSecure) {
+        return BaseMinecraftSessionService.runBlocking(() -> fillProfileProperties(profile, requireSecure));
+    }
+
 }
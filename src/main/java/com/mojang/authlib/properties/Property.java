@@ -1,8 +1,6 @@
 package com.mojang.authlib.properties;
 
-import org.apache.commons.codec.binary.Base64;
-
-import java.security.*;
+import java.security.PublicKey;
 
 public class Property {
 
@@ -37,15 +35,6 @@ public class Property {
     }
     
     public boolean isSignatureValid(PublicKey publicKey) {
-        try {
-            Signature signature = Signature.getInstance("SHA1withRSA");
-            signature.initVerify(publicKey);
-            signature.update(value.getBytes());
-            return signature.verify(Base64.decodeBase64(this.signature));
-        } catch (NoSuchAlgorithmException | InvalidKeyException | SignatureException e) {
-            e.printStackTrace();
-        }
-
-        return false;
+        return SignatureCache.shared().isSignatureValid(this, publicKey);
     }
 }
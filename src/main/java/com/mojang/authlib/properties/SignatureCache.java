@@ -0,0 +1,100 @@
+package com.mojang.authlib.properties;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.apache.commons.lang3.Validate;
+
+import java.security.PublicKey;
+
+import static org.apache.commons.io.Charsets.UTF_8;
+
+/**
+ * Remembers the outcome of signature checks, keyed by a SHA-256 digest over the key, the property value and
+ * the signature, so checking an unchanged property again does not repeat the RSA operation.
+ */
+public class SignatureCache {
+
+    public static final long DEFAULT_MAXIMUM_SIZE = 10000;
+    private static final HashFunction DIGEST = Hashing.sha256();
+
+    private final Cache<HashCode, Boolean> results;
+    private final Cache<PublicKey, HashCode> keyIds = CacheBuilder.newBuilder().weakKeys().build();
+
+    public SignatureCache(long maximumSize) {
+        Validate.isTrue(maximumSize > 0, "Maximum size must be positive");
+
+        this.results = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+    }
+
+    public static SignatureCache shared() {
+        return Holder.INSTANCE;
+    }
+
+    public boolean isSignatureValid(Property property, PublicKey publicKey) {
+        return isSignatureValid(property, SignatureVerifier.forKey(publicKey));
+    }
+
+    public boolean isSignatureValid(Property property, SignatureVerifier verifier) {
+        Validate.notNull(property);
+        Validate.notNull(verifier);
+
+        HashCode keyId = getKeyId(verifier.getPublicKey());
+
+        if(keyId == null || !property.hasSignature()) {
+            return verifier.verify(property);
+        }
+
+        HashCode digest = DIGEST.newHasher()
+                .putBytes(keyId.asBytes())
+                .putInt(property.getValue().length())
+                .putString(property.getValue(), UTF_8)
+                .putInt(property.getSignature().length())
+                .putString(property.getSignature(), UTF_8)
+                .hash();
+
+        Boolean cached = results.getIfPresent(digest);
+
+        if(cached != null) {
+            return cached;
+        }
+
+        boolean valid = verifier.verify(property);
+        results.put(digest, valid);
+        return valid;
+    }
+
+    public CacheStats stats() {
+        return results.stats();
+    }
+
+    public void invalidateAll() {
+        results.invalidateAll();
+    }
+
+    private HashCode getKeyId(PublicKey publicKey) {
+        HashCode keyId = keyIds.getIfPresent(publicKey);
+
+        if(keyId == null) {
+            byte[] encoded = publicKey.getEncoded();
+
+            // Keys without an encoding cannot be told apart reliably, so their results are never cached
+            if(encoded == null) {
+                return null;
+            }
+
+            keyId = DIGEST.hashBytes(encoded);
+            keyIds.put(publicKey, keyId);
+        }
+
+        return keyId;
+    }
+
+    private static class Holder {
+        private static final SignatureCache INSTANCE = new SignatureCache(DEFAULT_MAXIMUM_SIZE);
+    }
+
+}
@@ -0,0 +1,238 @@
+package com.mojang.authlib.properties;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.apache.commons.lang3.Validate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static org.apache.commons.io.Charsets.UTF_8;
+
+/**
+ * Checks SHA1withRSA signatures against a single public key. Every thread keeps its own {@link Signature}
+ * already initialised with the key, along with the buffers the value and signature are decoded into.
+ */
+public class SignatureVerifier {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String ALGORITHM = "SHA1withRSA";
+    // Each verification is an RSA operation of tens of microseconds, so even small slices are worth forking
+    private static final int BATCH_THRESHOLD = 4;
+    // Held strongly, as a verifier and the signatures it initialised all reference their key, so weak keys would
+    // never be cleared and weak values would be dropped at every collection. Keys compare by their encoding.
+    private static final LoadingCache<PublicKey, SignatureVerifier> VERIFIERS = CacheBuilder.newBuilder()
+            .maximumSize(64)
+            .build(new CacheLoader<PublicKey, SignatureVerifier>() {
+                @Override
+                public SignatureVerifier load(PublicKey key) {
+                    return new SignatureVerifier(key);
+                }
+            });
+
+    private static final byte[] DIGITS = new byte[128];
+
+    static {
+        Arrays.fill(DIGITS, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+        for(int i = 0; i < alphabet.length(); i++) {
+            DIGITS[alphabet.charAt(i)] = (byte) i;
+        }
+
+        // The URL-safe alphabet is accepted as well, as commons-codec does
+        DIGITS['-'] = 62;
+        DIGITS['_'] = 63;
+    }
+
+    private final PublicKey publicKey;
+    private final ThreadLocal<State> state = new ThreadLocal<>();
+
+    public SignatureVerifier(PublicKey publicKey) {
+        Validate.notNull(publicKey);
+        this.publicKey = publicKey;
+    }
+
+    /**
+     * Returns the verifier shared by everyone checking signatures against the given key.
+     */
+    public static SignatureVerifier forKey(PublicKey publicKey) {
+        Validate.notNull(publicKey);
+        return VERIFIERS.getUnchecked(publicKey);
+    }
+
+    public PublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    public boolean verify(Property property) {
+        return property.hasSignature() && verify(property.getValue(), property.getSignature());
+    }
+
+    public boolean verify(String value, String signature) {
+        Validate.notNull(value);
+        Validate.notNull(signature);
+
+        try {
+            State current = state.get();
+
+            if(current == null) {
+                current = new State(publicKey);
+                state.set(current);
+            }
+
+            return current.verify(value, signature);
+        } catch(GeneralSecurityException | IllegalArgumentException e) {
+            // A failed update can leave the Signature half way through a message, so start over next time
+            state.remove();
+            LOGGER.warn("Could not verify signature with " + publicKey.getAlgorithm() + " key", e);
+            return false;
+        }
+    }
+
+    /**
+     * Verifies every property on the common fork/join pool. The result at each index says whether the property
+     * at the same index carries a valid signature.
+     */
+    public boolean[] verifyAll(List<Property> properties) {
+        return verifyAll(properties, ForkJoinPool.commonPool());
+    }
+
+    public boolean[] verifyAll(List<Property> properties, ForkJoinPool pool) {
+        Validate.notNull(properties);
+        Validate.notNull(pool);
+
+        Property[] batch = properties.toArray(new Property[properties.size()]);
+        boolean[] results = new boolean[batch.length];
+
+        if(batch.length <= BATCH_THRESHOLD) {
+            new BatchTask(batch, results, 0, batch.length).compute();
+        } else {
+            pool.invoke(new BatchTask(batch, results, 0, batch.length));
+        }
+
+        return results;
+    }
+
+    private class BatchTask extends RecursiveAction {
+        private final Property[] batch;
+        private final boolean[] results;
+        private final int from;
+        private final int to;
+
+        private BatchTask(Property[] batch, boolean[] results, int from, int to) {
+            this.batch = batch;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= BATCH_THRESHOLD) {
+                for(int i = from; i < to; i++) {
+                    results[i] = batch[i] != null && verify(batch[i]);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new BatchTask(batch, results, from, middle), new BatchTask(batch, results, middle, to));
+        }
+    }
+
+    private static class State {
+        private final Signature signature;
+        private final CharsetEncoder encoder = UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private ByteBuffer valueBytes = ByteBuffer.allocate(1024);
+        private byte[] signatureBytes = new byte[1024];
+
+        private State(PublicKey publicKey) throws GeneralSecurityException {
+            signature = Signature.getInstance(ALGORITHM);
+            signature.initVerify(publicKey);
+        }
+
+        private boolean verify(String value, String signatureText) throws GeneralSecurityException {
+            int valueLength = encode(value);
+            int signatureLength = decode(signatureText);
+
+            signature.update(valueBytes.array(), 0, valueLength);
+            return signature.verify(signatureBytes, 0, signatureLength);
+        }
+
+        private int encode(String value) {
+            int required = (int) Math.ceil(value.length() * encoder.maxBytesPerChar());
+
+            if(valueBytes.capacity() < required) {
+                valueBytes = ByteBuffer.allocate(required);
+            }
+
+            valueBytes.clear();
+            encoder.reset();
+            encoder.encode(CharBuffer.wrap(value), valueBytes, true);
+            encoder.flush(valueBytes);
+            return valueBytes.position();
+        }
+
+        /**
+         * Decodes like commons-codec does: characters outside the Base64 alphabet are skipped and padding ends the input.
+         */
+        private int decode(String text) {
+            if(signatureBytes.length < text.length()) {
+                signatureBytes = new byte[text.length()];
+            }
+
+            int length = 0;
+            int bits = 0;
+            int count = 0;
+
+            for(int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+
+                if(c == '=') {
+                    break;
+                }
+
+                int digit = (c < DIGITS.length) ? DIGITS[c] : -1;
+
+                if(digit < 0) {
+                    continue;
+                }
+
+                bits = (bits << 6) | digit;
+
+                if(++count == 4) {
+                    signatureBytes[length++] = (byte) (bits >> 16);
+                    signatureBytes[length++] = (byte) (bits >> 8);
+                    signatureBytes[length++] = (byte) bits;
+                    bits = 0;
+                    count = 0;
+                }
+            }
+
+            if(count == 2) {
+                signatureBytes[length++] = (byte) (bits >> 4);
+            } else if(count == 3) {
+                signatureBytes[length++] = (byte) (bits >> 10);
+                signatureBytes[length++] = (byte) (bits >> 2);
+            }
+
+            return length;
+        }
+    }
+
+}
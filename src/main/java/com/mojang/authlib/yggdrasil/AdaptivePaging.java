@@ -0,0 +1,74 @@
+package com.mojang.authlib.yggdrasil;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Sizes search pages and the number of pages in flight from how earlier pages fared. Healthy pages grow both
+ * additively up to the configured maximums, throttling halves the pages in flight and other failures halve
+ * the page size as well. Pages that take much longer than usual hold growth back and trim the pages in flight.
+ */
+class AdaptivePaging {
+
+    private static final double LATENCY_WEIGHT = 0.2;
+    private static final double SLOW_PAGE_FACTOR = 2;
+    private static final double SLOW_PAGE_DECREASE = 0.75;
+
+    private final int maxPageSize;
+    private final int maxWindow;
+    private final boolean adaptive;
+    private int pageSize;
+    private double window;
+    private double latency;
+
+    AdaptivePaging(int maxPageSize, int maxWindow, boolean adaptive) {
+        Validate.isTrue(maxPageSize > 0, "Max page size must be positive");
+        Validate.isTrue(maxWindow > 0, "Max window must be positive");
+
+        this.maxPageSize = maxPageSize;
+        this.maxWindow = maxWindow;
+        this.adaptive = adaptive;
+        this.pageSize = maxPageSize;
+        // Start with a single page in flight and let healthy responses open the window
+        this.window = adaptive ? 1 : maxWindow;
+    }
+
+    synchronized int getPageSize() {
+        return pageSize;
+    }
+
+    synchronized int getWindow() {
+        return (int) window;
+    }
+
+    synchronized void onSuccess(long latencyNanos) {
+        if(!adaptive) {
+            return;
+        }
+
+        boolean slow = latency > 0 && latencyNanos > latency * SLOW_PAGE_FACTOR;
+        latency = (latency == 0) ? latencyNanos : latency + (latencyNanos - latency) * LATENCY_WEIGHT;
+
+        if(slow) {
+            window = Math.max(1, window * SLOW_PAGE_DECREASE);
+            return;
+        }
+
+        pageSize = Math.min(maxPageSize, pageSize + 1);
+        window = Math.min(maxWindow, window + 1 / window);
+    }
+
+    synchronized void onThrottled() {
+        if(adaptive) {
+            // The quota counts requests rather than names, so smaller pages would only make throttling worse
+            window = Math.max(1, window / 2);
+        }
+    }
+
+    synchronized void onFailure() {
+        if(adaptive) {
+            window = Math.max(1, window / 2);
+            pageSize = Math.max(1, pageSize / 2);
+        }
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.mojang.authlib.yggdrasil;
+
+import com.mojang.authlib.properties.Property;
+import com.mojang.authlib.properties.SignatureCache;
+import com.mojang.authlib.properties.SignatureVerifier;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The public keys property signatures are checked against. Each key is parsed once, and every property name
+ * remembers which key last verified it so that key is tried first, before falling back to the others.
+ */
+public class KeyRing {
+
+    public static final String YGGDRASIL = "yggdrasil";
+
+    private final Map<String, SignatureVerifier> keys = new ConcurrentHashMap<>();
+    private final List<SignatureVerifier> order = new CopyOnWriteArrayList<>();
+    private final Map<String, SignatureVerifier> hints = new ConcurrentHashMap<>();
+    private final SignatureCache signatureCache;
+    private boolean immutable;
+
+    public KeyRing() {
+        this(SignatureCache.shared());
+    }
+
+    public KeyRing(SignatureCache signatureCache) {
+        Validate.notNull(signatureCache);
+        this.signatureCache = signatureCache;
+    }
+
+    /**
+     * Returns the key ring holding only the session server's key, shared by every session service that was not
+     * given a key ring of its own. The key is read and parsed the first time this is called. The shared ring
+     * cannot be changed; to trust more keys, {@link #copy()} it and give the copy to the session service.
+     */
+    public static KeyRing shared() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Returns the session server's public key, parsed once.
+     */
+    public static PublicKey getYggdrasilKey() {
+        return shared().getKey(YGGDRASIL);
+    }
+
+    public static PublicKey parseKey(byte[] encoded) throws GeneralSecurityException {
+        return KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(encoded));
+    }
+
+    /**
+     * Returns a key ring that can be changed, holding the same keys and hints as this one.
+     */
+    public KeyRing copy() {
+        KeyRing result = new KeyRing(signatureCache);
+
+        result.keys.putAll(keys);
+        result.order.addAll(order);
+        result.hints.putAll(hints);
+        return result;
+    }
+
+    public KeyRing addKey(String id, PublicKey key) {
+        Validate.notNull(id);
+        Validate.notNull(key);
+        checkMutable();
+
+        SignatureVerifier verifier = SignatureVerifier.forKey(key);
+        SignatureVerifier previous = keys.put(id, verifier);
+
+        if(previous != null) {
+            order.remove(previous);
+            hints.values().remove(previous);
+        }
+
+        order.add(verifier);
+        return this;
+    }
+
+    public PublicKey getKey(String id) {
+        SignatureVerifier verifier = keys.get(id);
+        return (verifier == null) ? null : verifier.getPublicKey();
+    }
+
+    /**
+     * Tries the given key first for properties with the given name. Hints are also learned as signatures verify.
+     */
+    public KeyRing setHint(String propertyName, String id) {
+        Validate.notNull(propertyName);
+        checkMutable();
+        SignatureVerifier verifier = keys.get(id);
+        Validate.isTrue(verifier != null, "Unknown key " + id);
+
+        hints.put(propertyName, verifier);
+        return this;
+    }
+
+    public boolean isSignatureValid(Property property) {
+        if(!property.hasSignature()) {
+            return false;
+        }
+
+        SignatureVerifier hinted = (property.getName() == null) ? null : hints.get(property.getName());
+
+        if(hinted != null && signatureCache.isSignatureValid(property, hinted)) {
+            return true;
+        }
+
+        for(SignatureVerifier verifier : order) {
+            if(verifier != hinted && signatureCache.isSignatureValid(property, verifier)) {
+                if(property.getName() != null) {
+                    hints.put(property.getName(), verifier);
+                }
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void checkMutable() {
+        if(immutable) {
+            throw new UnsupportedOperationException("The shared key ring cannot be changed, use a copy of it instead");
+        }
+    }
+
+    private static class Holder {
+        private static final KeyRing INSTANCE = create();
+
+        private static KeyRing create() {
+            try(InputStream in = KeyRing.class.getResourceAsStream("/yggdrasil_session_pubkey.der")) {
+                KeyRing result = new KeyRing().addKey(YGGDRASIL, parseKey(IOUtils.toByteArray(in)));
+                result.immutable = true;
+                return result;
+            } catch(IOException | GeneralSecurityException | RuntimeException e) {
+                throw new Error("Missing/invalid yggdrasil public key!");
+            }
+        }
+    }
+
+}
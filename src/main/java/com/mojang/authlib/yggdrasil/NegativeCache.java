@@ -0,0 +1,47 @@
+package com.mojang.authlib.yggdrasil;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.lang3.Validate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers keys the server reported as not existing, for a short time and up to a bounded number of keys.
+ */
+class NegativeCache<K> {
+
+    private final Cache<K, Boolean> entries;
+    private final AtomicLong hits = new AtomicLong();
+
+    NegativeCache(long maximumSize, long ttl, TimeUnit unit) {
+        Validate.isTrue(maximumSize > 0, "Maximum size must be positive");
+        Validate.isTrue(ttl > 0, "TTL must be positive");
+        Validate.notNull(unit);
+
+        this.entries = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl, unit).build();
+    }
+
+    boolean contains(K key) {
+        if(entries.getIfPresent(key) == null) {
+            return false;
+        }
+
+        hits.incrementAndGet();
+        return true;
+    }
+
+    void add(K key) {
+        entries.put(key, Boolean.TRUE);
+    }
+
+    void invalidate(K key) {
+        entries.invalidate(key);
+    }
+
+    long getHitCount() {
+        return hits.get();
+    }
+
+}
@@ -0,0 +1,522 @@
+package com.mojang.authlib.yggdrasil;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mojang.authlib.GameProfile;
+import com.mojang.authlib.properties.Property;
+import org.apache.commons.lang3.Validate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Keeps profile properties and name lookups on disk so that the caches survive restarts.
+ *
+ * The file is a memory-mapped, append-only log of records. Each record carries its expiry, and a later record
+ * for the same key replaces an earlier one. Opening the store only indexes the record offsets; records are
+ * decoded when they are looked up. Writes are appended on a background thread, and the log is compacted down
+ * to its live records once it reaches its maximum size and at least a quarter of it can be reclaimed. Until
+ * then, records that do not fit are not stored.
+ */
+public class ProfileStore implements Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final int MAGIC = 0x41505346;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int INITIAL_SIZE = 1024 * 1024;
+    private static final byte TYPE_PROPERTIES = 1;
+    private static final byte TYPE_SIGNED_PROPERTIES = 2;
+    private static final byte TYPE_NAME = 3;
+    private static final long COMPACTION_BACKOFF_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    public static final int DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
+
+    private final Path file;
+    private final int maxSize;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("Authlib Profile Store").setDaemon(true).build());
+    private FileChannel channel;
+    private FileLock lock;
+    private volatile Segment segment;
+    private long compactionBackoffUntil = System.nanoTime();
+
+    public ProfileStore(Path file) throws IOException {
+        this(file, DEFAULT_MAX_SIZE);
+    }
+
+    public ProfileStore(Path file, int maxSize) throws IOException {
+        Validate.notNull(file);
+        Validate.isTrue(maxSize >= INITIAL_SIZE, "Max size must be at least " + INITIAL_SIZE + " bytes");
+
+        this.file = file;
+        this.maxSize = maxSize;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.lock = channel.tryLock();
+
+        if(lock == null) {
+            channel.close();
+            throw new IOException("Profile store " + file + " is in use by another process");
+        }
+
+        this.segment = load();
+    }
+
+    public GameProfile getProfile(UUID id, boolean requireSigned) {
+        Segment segment = this.segment;
+        Integer offset = segment.signed.get(id);
+
+        if(offset == null && !requireSigned) {
+            offset = segment.unsigned.get(id);
+        }
+
+        if(offset == null) {
+            return null;
+        }
+
+        ByteBuffer buffer = segment.record(offset);
+
+        if(buffer == null) {
+            return null;
+        }
+
+        GameProfile result = new GameProfile(new UUID(buffer.getLong(), buffer.getLong()), readString(buffer));
+
+        for(int i = buffer.getInt(); i > 0; i--) {
+            String name = readString(buffer);
+            String value = readString(buffer);
+            String signature = readString(buffer);
+            result.getProperties().put(name, new Property(name, value, signature));
+        }
+
+        return result;
+    }
+
+    public GameProfile getProfileByName(String key) {
+        Segment segment = this.segment;
+        Integer offset = segment.names.get(key);
+
+        if(offset == null) {
+            return null;
+        }
+
+        ByteBuffer buffer = segment.record(offset);
+
+        if(buffer == null) {
+            return null;
+        }
+
+        readString(buffer);
+        return new GameProfile(new UUID(buffer.getLong(), buffer.getLong()), readString(buffer));
+    }
+
+    public void putProfile(GameProfile profile, boolean signed, long ttl, TimeUnit unit) {
+        UUID id = profile.getId();
+        String name = profile.getName();
+        List<Property> properties = new ArrayList<>(profile.getProperties().values());
+        long expiresAt = System.currentTimeMillis() + unit.toMillis(ttl);
+
+        submit(() -> {
+            int size = 8 + 8 + sizeOf(name) + 4;
+
+            for(Property property : properties) {
+                size += sizeOf(property.getName()) + sizeOf(property.getValue()) + sizeOf(property.getSignature());
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            buffer.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+            writeString(buffer, name);
+            buffer.putInt(properties.size());
+
+            for(Property property : properties) {
+                writeString(buffer, property.getName());
+                writeString(buffer, property.getValue());
+                writeString(buffer, property.getSignature());
+            }
+
+            append(signed ? TYPE_SIGNED_PROPERTIES : TYPE_PROPERTIES, expiresAt, buffer);
+        });
+    }
+
+    public void putName(String key, GameProfile profile, long ttl, TimeUnit unit) {
+        UUID id = profile.getId();
+        String name = profile.getName();
+        long expiresAt = System.currentTimeMillis() + unit.toMillis(ttl);
+
+        submit(() -> {
+            ByteBuffer buffer = ByteBuffer.allocate(sizeOf(key) + 16 + sizeOf(name));
+            writeString(buffer, key);
+            buffer.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+            writeString(buffer, name);
+
+            append(TYPE_NAME, expiresAt, buffer);
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.shutdown();
+
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized(this) {
+            if(channel != null) {
+                segment.buffer.force();
+                lock.release();
+                channel.close();
+            }
+        }
+    }
+
+    private void submit(IoTask task) {
+        try {
+            writer.execute(() -> {
+                try {
+                    synchronized(this) {
+                        // The store is unavailable once its file could not be locked again after compacting
+                        if(channel != null) {
+                            task.run();
+                        }
+                    }
+                } catch(IOException e) {
+                    LOGGER.warn("Couldn't write to profile store " + file, e);
+                }
+            });
+        } catch(RejectedExecutionException ignored) {
+            // The store has been closed
+        }
+    }
+
+    private Segment load() throws IOException {
+        long size = channel.size();
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_SIZE, Math.min(size, maxSize)));
+
+        if(size < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            if(size > 0) {
+                LOGGER.warn("Discarding profile store " + file + " as it is not in a known format");
+                channel.truncate(0);
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_SIZE);
+            }
+
+            buffer.putInt(0, MAGIC).putInt(4, VERSION);
+            Segment segment = new Segment(buffer);
+            segment.end = HEADER_SIZE;
+            return segment;
+        }
+
+        Segment segment = new Segment(buffer);
+
+        long now = System.currentTimeMillis();
+        int position = HEADER_SIZE;
+
+        // A record's length is written after its contents, so a record torn by a crash reads as the end of the log
+        while(position + 4 <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+
+            if(length <= 0 || position + 4 + length > buffer.capacity()) {
+                break;
+            }
+
+            segment.index(position, buffer.get(position + 4), buffer.getLong(position + 5) > now);
+            position += 4 + length;
+        }
+
+        segment.end = position;
+        return segment;
+    }
+
+    private void append(byte type, long expiresAt, ByteBuffer payload) throws IOException {
+        int length = 1 + 8 + payload.capacity();
+
+        if(!ensureCapacity(4 + length)) {
+            LOGGER.debug("Profile store " + file + " is full, not storing record");
+            return;
+        }
+
+        Segment segment = this.segment;
+        ByteBuffer buffer = segment.buffer.duplicate();
+        int position = segment.end;
+
+        buffer.position(position + 4);
+        buffer.put(type).putLong(expiresAt);
+        payload.flip();
+        buffer.put(payload);
+        buffer.putInt(position, length);
+
+        segment.end = position + 4 + length;
+        segment.index(position, type, true);
+    }
+
+    private boolean ensureCapacity(int needed) throws IOException {
+        if(hasCapacity(needed)) {
+            return true;
+        }
+
+        grow(needed);
+
+        if(hasCapacity(needed)) {
+            return true;
+        }
+
+        // Compacting rewrites and syncs the whole file, so it is only worth it once enough of it can be reclaimed
+        if(System.nanoTime() - compactionBackoffUntil < 0) {
+            return false;
+        }
+
+        if(segment.reclaimable(System.currentTimeMillis()) < maxSize / 4 || !compact()) {
+            compactionBackoffUntil = System.nanoTime() + COMPACTION_BACKOFF_NANOS;
+            return false;
+        }
+
+        grow(needed);
+        return hasCapacity(needed);
+    }
+
+    private boolean hasCapacity(int needed) {
+        return segment.end + needed <= segment.buffer.capacity();
+    }
+
+    private void grow(int needed) throws IOException {
+        Segment segment = this.segment;
+        int capacity = segment.buffer.capacity();
+
+        if(capacity < maxSize) {
+            int grown = (int) Math.min(maxSize, Math.max((long) capacity * 2, (long) segment.end + needed));
+            this.segment = new Segment(channel.map(FileChannel.MapMode.READ_WRITE, 0, grown), segment);
+        }
+    }
+
+    // Copies the live records into a new file and swaps it in, as the log itself never shrinks. Returns whether
+    // the store can still be written to the compacted file.
+    private boolean compact() throws IOException {
+        Segment segment = this.segment;
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long now = System.currentTimeMillis();
+
+        try(FileChannel target = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            target.write(header);
+
+            for(Map<?, Integer> index : segment.indexes()) {
+                for(Integer offset : index.values()) {
+                    ByteBuffer record = segment.buffer.duplicate();
+                    int length = record.getInt(offset);
+
+                    if(record.getLong(offset + 5) > now) {
+                        record.position(offset).limit(offset + 4 + length);
+                        target.write(record);
+                    }
+                }
+            }
+
+            target.force(true);
+        }
+
+        // The old file stays open and locked until the swap has succeeded, so a failed move leaves the store as it was
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch(IOException e) {
+            LOGGER.warn("Couldn't compact profile store " + file, e);
+            Files.deleteIfExists(temp);
+            return false;
+        }
+
+        FileChannel previous = channel;
+        FileLock previousLock = lock;
+        channel = null;
+        lock = null;
+
+        try {
+            FileChannel reopened = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileLock reopenedLock = reopened.tryLock();
+
+            if(reopenedLock == null) {
+                reopened.close();
+                LOGGER.warn("Profile store " + file + " was taken by another process while compacting, no longer storing records");
+                return false;
+            }
+
+            channel = reopened;
+            lock = reopenedLock;
+            this.segment = load();
+        } catch(IOException e) {
+            if(channel != null) {
+                channel.close();
+                channel = null;
+                lock = null;
+            }
+
+            LOGGER.warn("Couldn't reopen profile store " + file + " after compacting, no longer storing records", e);
+            return false;
+        } finally {
+            previousLock.release();
+            previous.close();
+        }
+
+        LOGGER.debug("Compacted profile store " + file + " to " + this.segment.end + " bytes");
+        return true;
+    }
+
+    private static int sizeOf(String value) {
+        return 4 + ((value == null) ? 0 : value.getBytes(UTF_8).length);
+    }
+
+    private static void writeString(ByteBuffer buffer, String value) {
+        if(value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+
+        if(length < 0) {
+            return null;
+        }
+
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private interface IoTask {
+        void run() throws IOException;
+    }
+
+    private static class Segment {
+        private final MappedByteBuffer buffer;
+        private final Map<UUID, Integer> unsigned;
+        private final Map<UUID, Integer> signed;
+        private final Map<String, Integer> names;
+        private int end;
+        private int dead;
+
+        private Segment(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+            this.unsigned = new ConcurrentHashMap<>();
+            this.signed = new ConcurrentHashMap<>();
+            this.names = new ConcurrentHashMap<>();
+        }
+
+        private Segment(MappedByteBuffer buffer, Segment previous) {
+            this.buffer = buffer;
+            this.unsigned = previous.unsigned;
+            this.signed = previous.signed;
+            this.names = previous.names;
+            this.end = previous.end;
+            this.dead = previous.dead;
+        }
+
+        private List<Map<?, Integer>> indexes() {
+            List<Map<?, Integer>> result = new ArrayList<>(3);
+            result.add(unsigned);
+            result.add(signed);
+            result.add(names);
+            return result;
+        }
+
+        private void index(int offset, byte type, boolean live) {
+            ByteBuffer record = buffer.duplicate();
+            record.position(offset + 13);
+
+            if(type == TYPE_NAME) {
+                String key = readDirectString(record);
+                update(names, key, offset, live);
+            } else if(type == TYPE_PROPERTIES || type == TYPE_SIGNED_PROPERTIES) {
+                UUID id = new UUID(record.getLong(), record.getLong());
+                update(type == TYPE_SIGNED_PROPERTIES ? signed : unsigned, id, offset, live);
+            }
+        }
+
+        private <K> void update(Map<K, Integer> index, K key, int offset, boolean live) {
+            Integer replaced = live ? index.put(key, offset) : index.remove(key);
+
+            if(replaced != null) {
+                dead += 4 + buffer.getInt(replaced);
+            }
+
+            if(!live) {
+                dead += 4 + buffer.getInt(offset);
+            }
+        }
+
+        /**
+         * Counts the bytes a compaction would drop: records that were replaced, and indexed records that have
+         * expired since.
+         */
+        private long reclaimable(long now) {
+            long result = dead;
+
+            for(Map<?, Integer> index : indexes()) {
+                for(Integer offset : index.values()) {
+                    if(buffer.getLong(offset + 5) <= now) {
+                        result += 4 + buffer.getInt(offset);
+                    }
+                }
+            }
+
+            return result;
+        }
+
+        /**
+         * Copies the record at the given offset onto the heap, positioned after its expiry, or returns null if
+         * it has expired.
+         */
+        private ByteBuffer record(int offset) {
+            ByteBuffer record = buffer.duplicate();
+
+            // Records appended after the file was remapped are not visible through an older mapping
+            if(offset + 13 > record.capacity() || offset + 4 + record.getInt(offset) > record.capacity()) {
+                return null;
+            }
+
+            int length = record.getInt(offset);
+
+            if(record.getLong(offset + 5) <= System.currentTimeMillis()) {
+                return null;
+            }
+
+            byte[] bytes = new byte[length - 9];
+            record.position(offset + 13);
+            record.get(bytes);
+            return ByteBuffer.wrap(bytes);
+        }
+
+        private static String readDirectString(ByteBuffer buffer) {
+            int length = buffer.getInt();
+            byte[] bytes = new byte[Math.max(0, length)];
+            buffer.get(bytes);
+            return new String(bytes, UTF_8);
+        }
+    }
+
+}
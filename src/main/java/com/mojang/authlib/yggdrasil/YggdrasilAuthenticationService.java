@@ -1,31 +1,63 @@
 package com.mojang.authlib.yggdrasil;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
 import com.mojang.authlib.*;
 import com.mojang.authlib.exceptions.AuthenticationException;
 import com.mojang.authlib.exceptions.AuthenticationUnavailableException;
 import com.mojang.authlib.exceptions.InvalidCredentialsException;
 import com.mojang.authlib.exceptions.UserMigratedException;
+import com.mojang.authlib.http.BlockingHttpTransport;
+import com.mojang.authlib.http.HedgePolicy;
+import com.mojang.authlib.http.HttpRequest;
+import com.mojang.authlib.http.HttpResponse;
+import com.mojang.authlib.http.HttpStatusException;
+import com.mojang.authlib.http.HttpTransport;
+import com.mojang.authlib.http.RequestBody;
+import com.mojang.authlib.http.ResponseHandler;
+import com.mojang.authlib.http.RetryPolicy;
 import com.mojang.authlib.minecraft.MinecraftSessionService;
 import com.mojang.authlib.properties.PropertyMap;
 import com.mojang.authlib.yggdrasil.response.ProfileSearchResultsResponse;
 import com.mojang.authlib.yggdrasil.response.Response;
 import com.mojang.util.UUIDTypeAdapter;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.lang.reflect.Type;
 import java.net.Proxy;
 import java.net.URL;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
+
+import static org.apache.commons.io.Charsets.UTF_8;
 
 public class YggdrasilAuthenticationService extends HttpAuthenticationService {
 
     private final String clientToken;
     private final Gson gson;
+    private final ConcurrentMap<String, CompletableFuture<? extends Response>> inFlight = new ConcurrentHashMap<>();
+    private volatile RetryPolicy retryPolicy = new RetryPolicy();
     
     public YggdrasilAuthenticationService(final Proxy proxy, final String clientToken) {
-        super(proxy);
+        this(proxy, clientToken, new BlockingHttpTransport(proxy));
+    }
+
+    public YggdrasilAuthenticationService(final Proxy proxy, final String clientToken, final HttpTransport transport) {
+        super(proxy, transport);
         this.clientToken = clientToken;
 
         GsonBuilder builder = new GsonBuilder();
@@ -52,32 +84,187 @@ public class YggdrasilAuthenticationService extends HttpAuthenticationService {
         return new YggdrasilGameProfileRepository(this);
     }
     
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        Validate.notNull(retryPolicy);
+        this.retryPolicy = retryPolicy;
+    }
+
     protected <T extends Response> T makeRequest(URL url, Object input, Class<T> classOfT)
             throws AuthenticationException, JsonParseException {
+        return makeRequest(url, input, classOfT, input == null);
+    }
+
+    protected <T extends Response> T makeRequest(URL url, Object input, Class<T> classOfT, boolean idempotent)
+            throws AuthenticationException, JsonParseException {
+        return awaitResponse(makeRequestAsync(url, input, classOfT, idempotent));
+    }
+
+    protected <T extends Response> T makeRequest(URL url, Object input, Class<T> classOfT, HedgePolicy hedgePolicy)
+            throws AuthenticationException, JsonParseException {
+        return awaitResponse(makeRequestAsync(url, input, classOfT, input == null, hedgePolicy));
+    }
 
+    private static <T extends Response> T awaitResponse(CompletableFuture<T> future) throws AuthenticationException {
         try {
-            String jsonResult = (input == null) ? performGetRequest(url) : performPostRequest(url, gson.toJson(input), "application/json");
+            return future.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthenticationUnavailableException("Interrupted while contacting authentication server", e);
+        } catch(ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if(cause instanceof AuthenticationException) {
+                throw (AuthenticationException) cause;
+            }
+
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            if(cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new AuthenticationUnavailableException("Cannot contact authentication server", cause);
+        }
+    }
+
+    protected <T extends Response> CompletableFuture<T> makeRequestAsync(URL url, Object input, Class<T> classOfT) {
+        return makeRequestAsync(url, input, classOfT, input == null);
+    }
+
+    /**
+     * @param idempotent whether the request may safely be sent again after a failure that could have happened
+     *                   after the server already acted on it
+     */
+    protected <T extends Response> CompletableFuture<T> makeRequestAsync(URL url, Object input, Class<T> classOfT, boolean idempotent) {
+        return makeRequestAsync(url, input, classOfT, idempotent, null);
+    }
+
+    /**
+     * @param hedgePolicy hedges each attempt of an idempotent request, or null to send a single copy
+     */
+    protected <T extends Response> CompletableFuture<T> makeRequestAsync(URL url, Object input, Class<T> classOfT, boolean idempotent, HedgePolicy hedgePolicy) {
+        if(!idempotent) {
+            hedgePolicy = null;
+        }
+
+        if(input != null) {
+            return sendRequest(url, input, classOfT, idempotent, hedgePolicy);
+        }
+
+        // Identical GETs that are already in flight share the upstream call and its parsed response
+        String key = classOfT.getName() + ' ' + url.toExternalForm();
+        CompletableFuture<T> created = new CompletableFuture<>();
+
+        @SuppressWarnings("unchecked")
+        CompletableFuture<T> existing = (CompletableFuture<T>) inFlight.putIfAbsent(key, created);
+
+        if(existing != null) {
+            return existing.thenApply(result -> result);
+        }
+
+        sendRequest(url, null, classOfT, idempotent, hedgePolicy).whenComplete((result, error) -> {
+            inFlight.remove(key, created);
 
-            @SuppressWarnings("unchecked")
-            T result = (T)this.gson.fromJson(jsonResult, classOfT);
+            if(error != null) {
+                created.completeExceptionally(error);
+            } else {
+                created.complete(result);
+            }
+        });
+
+        return created.thenApply(result -> result);
+    }
+
+    private <T extends Response> CompletableFuture<T> sendRequest(URL url, Object input, Class<T> classOfT, boolean idempotent, HedgePolicy hedgePolicy) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        HttpRequest request = (input == null) ? HttpRequest.get(url) : HttpRequest.post(url, new JsonBody(input));
+        String endpoint = request.getEndpoint();
+
+        ResponseHandler<T> handler = response -> {
+            int status = response.getStatusCode();
+
+            if(status == 429 || status >= 500) {
+                throw new HttpStatusException(endpoint, status, response.getRetryAfterMillis());
+            }
+
+            return readJson(response, classOfT);
+        };
+
+        ScheduledExecutorService scheduler = getScheduler();
+        Executor executor = getRequestExecutor();
+        Supplier<CompletableFuture<T>> attempt = (hedgePolicy == null)
+                ? () -> execute(request, handler)
+                : () -> hedgePolicy.execute(scheduler, executor, () -> execute(request, handler));
 
-            if(result == null) {
-                return null;
+        CompletableFuture<T> sent = retryPolicy.execute(endpoint, idempotent, scheduler, executor, attempt);
+        future.whenComplete((result, error) -> {
+            if(future.isCancelled()) {
+                sent.cancel(true);
             }
+        });
 
-            if(!StringUtils.isNotBlank((CharSequence)result.getError())) {
-                return result;
+        sent.whenComplete((result, error) -> {
+            if(error != null) {
+                future.completeExceptionally(translate(error));
+                return;
             }
-            if("UserMigratedException".equals(result.getCause())) {
-                throw new UserMigratedException(result.getErrorMessage());
+
+            try {
+                future.complete(checkResponse(result));
+            } catch(AuthenticationException e) {
+                future.completeExceptionally(e);
             }
-            if(result.getError().equals("ForbiddenOperationException")) {
-                throw new InvalidCredentialsException(result.getErrorMessage());
+        });
+
+        return future;
+    }
+
+    private static <T extends Response> T checkResponse(T result) throws AuthenticationException {
+        if(result == null) {
+            return null;
+        }
+
+        if(!StringUtils.isNotBlank((CharSequence)result.getError())) {
+            return result;
+        }
+        if("UserMigratedException".equals(result.getCause())) {
+            throw new UserMigratedException(result.getErrorMessage());
+        }
+        if(result.getError().equals("ForbiddenOperationException")) {
+            throw new InvalidCredentialsException(result.getErrorMessage());
+        }
+
+        throw new AuthenticationException(result.getErrorMessage());
+    }
+
+    private static Throwable translate(Throwable error) {
+        if(error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+
+        if(error instanceof IOException || error instanceof IllegalStateException) {
+            return new AuthenticationUnavailableException("Cannot contact authentication server", error);
+        }
+
+        return error;
+    }
+    
+    private <T> T readJson(HttpResponse response, Class<T> classOfT) throws IOException {
+        try(JsonReader reader = new JsonReader(new InputStreamReader(response.getBody(), UTF_8))) {
+            return gson.fromJson(reader, classOfT);
+        } catch(JsonParseException e) {
+            // Gson wraps failures of the underlying stream, which are transport errors rather than bad JSON
+            if(e.getCause() instanceof IOException && !(e.getCause() instanceof MalformedJsonException)) {
+                throw (IOException) e.getCause();
             }
 
-            throw new AuthenticationException(result.getErrorMessage());
-        } catch (IOException | IllegalStateException e) {
-            throw new AuthenticationUnavailableException("Cannot contact authentication server", e);
+            throw e;
         }
     }
     
@@ -85,6 +272,26 @@ public class YggdrasilAuthenticationService extends HttpAuthenticationService {
         return clientToken;
     }
     
+    private class JsonBody implements RequestBody {
+        private final Object input;
+
+        private JsonBody(Object input) {
+            this.input = input;
+        }
+
+        @Override
+        public String getContentType() {
+            return "application/json; charset=utf-8";
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, UTF_8));
+            gson.toJson(input, input.getClass(), writer);
+            writer.flush();
+        }
+    }
+    
     private static class GameProfileSerializer implements JsonSerializer<GameProfile>, JsonDeserializer<GameProfile> {
 
         public GameProfile deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
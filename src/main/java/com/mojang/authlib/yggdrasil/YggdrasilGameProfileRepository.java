@@ -1,87 +1,308 @@
 package com.mojang.authlib.yggdrasil;
 
 import com.google.common.base.Strings;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.mojang.authlib.*;
-import com.mojang.authlib.exceptions.AuthenticationException;
+import com.mojang.authlib.exceptions.AuthenticationUnavailableException;
+import com.mojang.authlib.http.HttpStatusException;
+import com.mojang.authlib.http.RateLimitedException;
+import com.mojang.authlib.http.UrlTemplate;
 import com.mojang.authlib.yggdrasil.response.ProfileSearchResultsResponse;
+import org.apache.commons.lang3.Validate;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 public class YggdrasilGameProfileRepository implements GameProfileRepository {
 
     private static final Logger LOGGER = LogManager.getLogger();
 
     private static final String BASE_URL = "https://api.mojang.com/";
-    private static final String SEARCH_PAGE_URL = "https://api.mojang.com/profiles/";
-    private static final int ENTRIES_PER_PAGE = 2;
-    private static final int MAX_FAIL_COUNT = 3;
-    private static final int DELAY_BETWEEN_PAGES = 100;
-    private static final int DELAY_BETWEEN_FAILURES = 750;
+    private static final UrlTemplate SEARCH_PAGE_URL = UrlTemplate.compile("https://api.mojang.com/profiles/{agent}");
+
+    /** The search endpoint rejects requests for more names than this. */
+    public static final int MAX_PAGE_SIZE = 10;
+    public static final int DEFAULT_PAGE_SIZE = MAX_PAGE_SIZE;
+    public static final int DEFAULT_MAX_CONCURRENT_PAGES = 4;
+    public static final int DEFAULT_LOOKUP_BUFFER_SIZE = 1000;
+    public static final long DEFAULT_NEGATIVE_CACHE_SIZE = 10000;
+    public static final long DEFAULT_NEGATIVE_CACHE_TTL_SECONDS = 300;
 
     private final YggdrasilAuthenticationService authenticationService;
+    private volatile NegativeCache<String> missingNames;
+    private volatile ProfileStore profileStore;
+    private volatile long profileStoreTtl;
+    private volatile int pageSize = DEFAULT_PAGE_SIZE;
+    private volatile int maxConcurrentPages = DEFAULT_MAX_CONCURRENT_PAGES;
+    private volatile boolean adaptivePaging = true;
+    private volatile AdaptivePaging paging = new AdaptivePaging(DEFAULT_PAGE_SIZE, DEFAULT_MAX_CONCURRENT_PAGES, true);
+    private volatile int lookupBufferSize = DEFAULT_LOOKUP_BUFFER_SIZE;
     
     public YggdrasilGameProfileRepository(YggdrasilAuthenticationService authenticationService) {
         this.authenticationService = authenticationService;
+
+        setNegativeCacheSettings(DEFAULT_NEGATIVE_CACHE_SIZE, DEFAULT_NEGATIVE_CACHE_TTL_SECONDS, SECONDS);
+    }
+
+    /**
+     * Replaces the cache of names the server did not find with an empty one. Names in it are reported as not
+     * found without asking the server again until the TTL has passed.
+     */
+    public void setNegativeCacheSettings(long maximumSize, long ttl, TimeUnit unit) {
+        missingNames = new NegativeCache<>(maximumSize, ttl, unit);
+    }
+
+    public long getNegativeCacheHitCount() {
+        return missingNames.getHitCount();
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        Validate.isTrue(pageSize > 0 && pageSize <= MAX_PAGE_SIZE, "Page size must be between 1 and " + MAX_PAGE_SIZE);
+        this.pageSize = pageSize;
+        this.paging = new AdaptivePaging(pageSize, maxConcurrentPages, adaptivePaging);
+    }
+
+    public int getMaxConcurrentPages() {
+        return maxConcurrentPages;
+    }
+
+    /**
+     * Bounds how many search pages are sent at once. Pages are sent from the authentication service's request
+     * executor, so its thread count also bounds them, and they are paced by the rate limiter the service has for
+     * the search host.
+     */
+    public void setMaxConcurrentPages(int maxConcurrentPages) {
+        Validate.isTrue(maxConcurrentPages > 0, "Max concurrent pages must be positive");
+        this.maxConcurrentPages = maxConcurrentPages;
+        this.paging = new AdaptivePaging(pageSize, maxConcurrentPages, adaptivePaging);
+    }
+
+    public boolean isAdaptivePaging() {
+        return adaptivePaging;
+    }
+
+    /**
+     * When enabled, which is the default, the page size and the pages in flight start small and grow towards
+     * the configured maximums while searches succeed, backing off when the server throttles or fails. When
+     * disabled, every search uses the maximums as they are.
+     */
+    public void setAdaptivePaging(boolean adaptivePaging) {
+        this.adaptivePaging = adaptivePaging;
+        this.paging = new AdaptivePaging(pageSize, maxConcurrentPages, adaptivePaging);
+    }
+
+    public int getCurrentPageSize() {
+        return paging.getPageSize();
+    }
+
+    public int getCurrentConcurrentPages() {
+        return paging.getWindow();
+    }
+
+    public int getLookupBufferSize() {
+        return lookupBufferSize;
+    }
+
+    /**
+     * Bounds how many results a streaming lookup buffers, counting names in pages still in flight. Results
+     * answered from the caches are handed out first and are not held back by this limit.
+     */
+    public void setLookupBufferSize(int lookupBufferSize) {
+        Validate.isTrue(lookupBufferSize > 0, "Lookup buffer size must be positive");
+        this.lookupBufferSize = lookupBufferSize;
+    }
+
+    public ProfileStore getProfileStore() {
+        return profileStore;
+    }
+
+    /**
+     * Answers lookups of names found within the given TTL from an on-disk store, or stops using the store
+     * when passed null.
+     */
+    public void setProfileStore(ProfileStore profileStore, long ttl, TimeUnit unit) {
+        Validate.isTrue(ttl > 0, "TTL must be positive");
+        Validate.notNull(unit);
+
+        this.profileStoreTtl = unit.toMillis(ttl);
+        this.profileStore = profileStore;
     }
     
     @Override
     public void findProfilesByNames(String[] names, Agent agent, ProfileLookupCallback callback) {
-        Set<String> criteria = Sets.newHashSet();
+        Set<String> unreported = Sets.newHashSet();
 
         for(String name : names) {
             if(!Strings.isNullOrEmpty(name)) {
-                criteria.add(name.toLowerCase());
+                unreported.add(name.toLowerCase());
             }
         }
 
-        int page = 0;
-        for(List<String> request : Iterables.partition(criteria, 2)) {
-            boolean failed = false;
-            int failCount = 0;
-
-            do {
-                try {
-                    ProfileSearchResultsResponse response = authenticationService.makeRequest(HttpAuthenticationService.constantURL("https://api.mojang.com/profiles/" + agent.getName().toLowerCase()), request, ProfileSearchResultsResponse.class);
-                    failCount = 0;
-
-                    LOGGER.debug("Page {} returned {} results, parsing", page, response.getProfiles().length);
-                    Set<String> missing = Sets.newHashSet(request);
-
-                    for(GameProfile profile : response.getProfiles()) {
-                        YggdrasilGameProfileRepository.LOGGER.debug("Successfully looked up profile {}", profile);
-                        missing.remove(profile.getName().toLowerCase());
-                        callback.onProfileLookupSucceeded(profile);
-                    }
-
-                    for(String name : missing) {
-                        YggdrasilGameProfileRepository.LOGGER.debug("Couldn't find profile {}", name);
-                        callback.onProfileLookupFailed(new GameProfile(null, name), new ProfileNotFoundException("Server did not find the requested profile"));
-                    }
-
-                    try {
-                        Thread.sleep(100L);
-                    } catch(InterruptedException ignored) {}
-                }
-                catch (AuthenticationException e) {
-                    if(++failCount == 3) {
-                        for(String name : request) {
-                            LOGGER.debug("Couldn't find profile {} because of a server error", name);
-                            callback.onProfileLookupFailed(new GameProfile(null, name), e);
-                        }
-                    } else {
-                        try {
-                            Thread.sleep(750L);
-                        } catch(InterruptedException ignored) {}
-                        failed = true;
-                    }
+        CompletableFuture<Void> completion;
+
+        // Results are consumed here, so the callback is only ever called from this thread
+        try(ProfileLookup lookup = lookupProfilesByNames(names, agent)) {
+            completion = lookup.getCompletionFuture();
+
+            while(lookup.hasNext()) {
+                ProfileLookupResult result = lookup.next();
+                unreported.remove(result.getProfile().getName().toLowerCase());
+
+                if(result.isFound()) {
+                    callback.onProfileLookupSucceeded(result.getProfile());
+                } else {
+                    callback.onProfileLookupFailed(result.getProfile(), result.getError());
                 }
-            } while(failed);
+            }
+        }
+
+        if(!unreported.isEmpty()) {
+            AuthenticationUnavailableException error = unreportedError(completion);
+
+            for(String name : unreported) {
+                callback.onProfileLookupFailed(new GameProfile(null, name), error);
+            }
+        }
+    }
+
+    private static AuthenticationUnavailableException unreportedError(CompletableFuture<Void> completion) {
+        if(Thread.currentThread().isInterrupted()) {
+            return new AuthenticationUnavailableException("Interrupted while looking up profiles");
+        }
+
+        Throwable cause = null;
+
+        if(completion.isCompletedExceptionally() && !completion.isCancelled()) {
+            try {
+                completion.join();
+            } catch(CompletionException e) {
+                cause = (e.getCause() != null) ? e.getCause() : e;
+            }
+        }
+
+        return new AuthenticationUnavailableException("Profile lookup ended without a result", cause);
+    }
+
+    @Override
+    public ProfileLookup lookupProfilesByNames(String[] names, Agent agent) {
+        return lookupProfilesByNames(names, agent, 0, false);
+    }
+
+    @Override
+    public ProfileLookup lookupProfilesByNames(String[] names, Agent agent, long timeout, TimeUnit unit) {
+        Validate.isTrue(timeout > 0, "Timeout must be positive");
+        Validate.notNull(unit);
+
+        return lookupProfilesByNames(names, agent, System.nanoTime() + Math.min(unit.toNanos(timeout), Long.MAX_VALUE / 2), true);
+    }
+
+    private ProfileLookup lookupProfilesByNames(String[] names, Agent agent, long deadline, boolean hasDeadline) {
+        Set<String> criteria = Sets.newLinkedHashSet();
+        NegativeCache<String> missingNames = this.missingNames;
+        ProfileStore profileStore = this.profileStore;
+        String agentName = agent.getName().toLowerCase();
+        List<ProfileLookupResult> known = Lists.newArrayList();
+
+        for(String name : names) {
+            if(!Strings.isNullOrEmpty(name)) {
+                criteria.add(name.toLowerCase());
+            }
         }
+
+        for(Iterator<String> iterator = criteria.iterator(); iterator.hasNext(); ) {
+            String name = iterator.next();
+
+            if(missingNames.contains(agentName + ':' + name)) {
+                iterator.remove();
+                LOGGER.debug("Couldn't find profile {} (cached)", name);
+                known.add(new ProfileLookupResult(new GameProfile(null, name), new ProfileNotFoundException("Server did not find the requested profile")));
+                continue;
+            }
+
+            GameProfile stored = (profileStore == null) ? null : profileStore.getProfileByName(agentName + ':' + name);
+
+            if(stored != null) {
+                iterator.remove();
+                LOGGER.debug("Successfully looked up profile {} (stored)", stored);
+                known.add(new ProfileLookupResult(stored, null));
+            }
+        }
+
+        YggdrasilProfileLookup lookup = new YggdrasilProfileLookup(this, agentName, authenticationService.getRequestExecutor(), Lists.newArrayList(criteria), known, paging, lookupBufferSize, deadline, hasDeadline);
+        lookup.start();
+        return lookup;
+    }
+
+    CompletableFuture<ProfileSearchResultsResponse> searchPage(String agentName, List<String> names) {
+        // Searching is read-only, so failed pages are retried by the service's retry policy like a GET
+        return authenticationService.makeRequestAsync(SEARCH_PAGE_URL.expand(agentName), names, ProfileSearchResultsResponse.class, true);
+    }
+
+    List<ProfileLookupResult> readPage(String agentName, int index, List<String> names, CompletableFuture<ProfileSearchResultsResponse> future, long sentAt, AdaptivePaging paging) {
+        List<ProfileLookupResult> results = Lists.newArrayListWithCapacity(names.size());
+        ProfileSearchResultsResponse response;
+
+        try {
+            response = future.join();
+            paging.onSuccess(System.nanoTime() - sentAt);
+        } catch(CompletionException | CancellationException e) {
+            Exception error = (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+
+            if(isThrottled(error)) {
+                paging.onThrottled();
+            } else {
+                paging.onFailure();
+            }
+
+            for(String name : names) {
+                LOGGER.debug("Couldn't find profile {} because of a server error", name);
+                results.add(new ProfileLookupResult(new GameProfile(null, name), error));
+            }
+            return results;
+        }
+
+        LOGGER.debug("Page {} returned {} results, parsing", index, response.getProfiles().length);
+        Set<String> missing = Sets.newHashSet(names);
+        ProfileStore profileStore = this.profileStore;
+
+        for(GameProfile profile : response.getProfiles()) {
+            YggdrasilGameProfileRepository.LOGGER.debug("Successfully looked up profile {}", profile);
+            missing.remove(profile.getName().toLowerCase());
+
+            if(profileStore != null) {
+                profileStore.putName(agentName + ':' + profile.getName().toLowerCase(), profile, profileStoreTtl, MILLISECONDS);
+            }
+
+            results.add(new ProfileLookupResult(profile, null));
+        }
+
+        for(String name : missing) {
+            YggdrasilGameProfileRepository.LOGGER.debug("Couldn't find profile {}", name);
+            missingNames.add(agentName + ':' + name);
+            results.add(new ProfileLookupResult(new GameProfile(null, name), new ProfileNotFoundException("Server did not find the requested profile")));
+        }
+
+        return results;
+    }
+
+    private static boolean isThrottled(Throwable error) {
+        Throwable cause = (error instanceof AuthenticationUnavailableException && error.getCause() != null) ? error.getCause() : error;
+        return cause instanceof RateLimitedException || (cause instanceof HttpStatusException && ((HttpStatusException) cause).getStatusCode() == 429);
     }
 
 }
@@ -1,15 +1,27 @@
 package com.mojang.authlib.yggdrasil;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 import com.mojang.authlib.GameProfile;
 import com.mojang.authlib.exceptions.AuthenticationException;
 import com.mojang.authlib.exceptions.AuthenticationUnavailableException;
+import com.mojang.authlib.http.HedgePolicy;
+import com.mojang.authlib.http.HttpScheduler;
+import com.mojang.authlib.http.RateLimitedException;
+import com.mojang.authlib.http.RateLimiter;
+import com.mojang.authlib.http.UrlTemplate;
 import com.mojang.authlib.minecraft.HttpMinecraftSessionService;
 import com.mojang.authlib.minecraft.InsecureTextureException;
 import com.mojang.authlib.minecraft.MinecraftProfileTexture;
@@ -22,51 +34,234 @@ import com.mojang.authlib.yggdrasil.response.MinecraftTexturesPayload;
 import com.mojang.authlib.yggdrasil.response.Response;
 import com.mojang.util.UUIDTypeAdapter;
 import org.apache.commons.codec.Charsets;
-import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.codec.binary.Base64InputStream;
+import org.apache.commons.lang3.Validate;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.net.URL;
-import java.security.KeyFactory;
-import java.security.PublicKey;
-import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
-import static com.mojang.authlib.HttpAuthenticationService.*;
-import static java.util.concurrent.TimeUnit.HOURS;
+import static com.mojang.authlib.HttpAuthenticationService.constantURL;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 public class YggdrasilMinecraftSessionService extends HttpMinecraftSessionService {
 
     private static final Logger LOGGER = LogManager.getLogger();
     private static final String BASE_URL = "https://sessionserver.mojang.com/session/minecraft/";
     private static final URL JOIN_URL = constantURL("https://sessionserver.mojang.com/session/minecraft/join");
-    private static final URL CHECK_URL = constantURL("https://sessionserver.mojang.com/session/minecraft/hasJoined");
+    private static final UrlTemplate CHECK_URL = UrlTemplate.compile("https://sessionserver.mojang.com/session/minecraft/hasJoined?username={username}&serverId={serverId}");
+    private static final UrlTemplate PROFILE_URL = UrlTemplate.compile("https://sessionserver.mojang.com/session/minecraft/profile/{id}?unsigned={unsigned}");
 
-    private final Gson gson = new GsonBuilder().registerTypeAdapter(UUID.class, new UUIDTypeAdapter()).create();
-    private final LoadingCache<GameProfile, GameProfile> insecureProfiles = CacheBuilder.newBuilder()
-            .expireAfterWrite(6L, HOURS)
-            .build(new CacheLoader<GameProfile, GameProfile>() {
+    public static final long DEFAULT_PROFILE_CACHE_SIZE = 10000;
+    public static final long DEFAULT_PROFILE_CACHE_EXPIRY_MINUTES = 6 * 60;
+    public static final long DEFAULT_PROFILE_CACHE_REFRESH_MINUTES = 60;
+    public static final long DEFAULT_SECURE_PROFILE_CACHE_SIZE = 10000;
+    public static final long DEFAULT_SECURE_PROFILE_CACHE_EXPIRY_MINUTES = 60;
+    public static final long DEFAULT_NEGATIVE_CACHE_SIZE = 10000;
+    public static final long DEFAULT_NEGATIVE_CACHE_TTL_SECONDS = 120;
+    public static final long DEFAULT_STALE_PROFILE_CACHE_SIZE = 50000;
+    public static final long DEFAULT_STALE_PROFILE_GRACE_MINUTES = 24 * 60;
+    public static final int DEFAULT_BULK_FILL_CONCURRENCY = 8;
+    public static final long DEFAULT_TEXTURE_CACHE_SIZE = 10000;
 
-                @Override
-                public GameProfile load(GameProfile key) throws Exception {
-                    return fillGameProfile(key, false);
-                }
-            });
+    private final Gson gson = new GsonBuilder().registerTypeAdapter(UUID.class, new UUIDTypeAdapter()).create();
+    private volatile LoadingCache<UUID, GameProfile> insecureProfiles;
+    private volatile Cache<UUID, GameProfile> secureProfiles;
+    private volatile NegativeCache<UUID> missingProfiles;
+    private volatile Cache<UUID, GameProfile> staleProfiles;
+    private volatile Cache<UUID, GameProfile> staleSecureProfiles;
+    private final AtomicLong staleServes = new AtomicLong();
+    private volatile ProfileStore profileStore;
+    private volatile long profileExpiry;
+    private volatile long secureProfileExpiry;
+    private volatile Cache<String, DecodedTextures> textures;
+    private volatile int bulkFillConcurrency = DEFAULT_BULK_FILL_CONCURRENCY;
+    // The session server allows about 200 profile lookups a minute per IP, shared with every other caller
+    private volatile RateLimiter bulkFillRateLimiter = new RateLimiter(150, 1, MINUTES, 10, RateLimiter.Mode.QUEUE, 30, SECONDS);
 
-    private final PublicKey publicKey;
+    private volatile KeyRing keyRing = KeyRing.shared();
+    private volatile HedgePolicy hasJoinedHedgePolicy;
     
     protected YggdrasilMinecraftSessionService(YggdrasilAuthenticationService authenticationService) {
         super(authenticationService);
 
-        try {
-            X509EncodedKeySpec spec = new X509EncodedKeySpec(IOUtils.toByteArray(YggdrasilMinecraftSessionService.class.getResourceAsStream("/yggdrasil_session_pubkey.der")));
-            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-            publicKey = keyFactory.generatePublic(spec);
-        } catch (Exception e) {
-            throw new Error("Missing/invalid yggdrasil public key!");
+        setStaleProfileSettings(DEFAULT_STALE_PROFILE_CACHE_SIZE, DEFAULT_STALE_PROFILE_GRACE_MINUTES, MINUTES);
+        setProfileCacheSettings(DEFAULT_PROFILE_CACHE_SIZE, DEFAULT_PROFILE_CACHE_EXPIRY_MINUTES, DEFAULT_PROFILE_CACHE_REFRESH_MINUTES, MINUTES);
+        setSecureProfileCacheSettings(DEFAULT_SECURE_PROFILE_CACHE_SIZE, DEFAULT_SECURE_PROFILE_CACHE_EXPIRY_MINUTES, MINUTES);
+        setNegativeCacheSettings(DEFAULT_NEGATIVE_CACHE_SIZE, DEFAULT_NEGATIVE_CACHE_TTL_SECONDS, SECONDS);
+        setTextureCacheSettings(DEFAULT_TEXTURE_CACHE_SIZE);
+    }
+
+    /**
+     * Replaces the cache of unsigned profile properties with an empty one. Entries older than refreshAfter are
+     * reloaded in the background the next time they are read, while the old value keeps being served.
+     */
+    public void setProfileCacheSettings(long maximumSize, long expireAfter, long refreshAfter, TimeUnit unit) {
+        Validate.isTrue(maximumSize > 0, "Maximum size must be positive");
+        Validate.isTrue(refreshAfter > 0 && expireAfter > refreshAfter, "Refresh delay must be positive and shorter than the expiry");
+        Validate.notNull(unit);
+
+        Executor refreshExecutor = command -> getExecutor().execute(command);
+        profileExpiry = unit.toMillis(expireAfter);
+
+        insecureProfiles = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfter, unit)
+                .refreshAfterWrite(refreshAfter, unit)
+                .recordStats()
+                .removalListener((RemovalListener<UUID, GameProfile>) notification -> retire(staleProfiles, notification))
+                .build(CacheLoader.asyncReloading(new CacheLoader<UUID, GameProfile>() {
+
+                    @Override
+                    public GameProfile load(UUID key) throws Exception {
+                        return reload(key, new GameProfile(key, null)).get();
+                    }
+
+                    @Override
+                    public ListenableFuture<GameProfile> reload(UUID key, GameProfile oldValue) throws Exception {
+                        GameProfile profile = new GameProfile(key, oldValue.getName());
+                        GameProfile result = requestProfile(profile, false);
+
+                        // Like cacheInsecureProfile, the bare profile of a not-found lookup never replaces cached properties
+                        if(result == profile) {
+                            return Futures.immediateFuture(oldValue);
+                        }
+
+                        storeProfile(profile, result, false);
+                        return Futures.immediateFuture(result);
+                    }
+                }, refreshExecutor));
+    }
+
+    public CacheStats getProfileCacheStats() {
+        return insecureProfiles.stats();
+    }
+
+    /**
+     * Replaces the cache of signed profile properties with an empty one. Properties are only cached once
+     * every one of them has been verified against the session server's public key.
+     */
+    public void setSecureProfileCacheSettings(long maximumSize, long expireAfter, TimeUnit unit) {
+        Validate.isTrue(maximumSize > 0, "Maximum size must be positive");
+        Validate.isTrue(expireAfter > 0, "Expiry must be positive");
+        Validate.notNull(unit);
+
+        secureProfileExpiry = unit.toMillis(expireAfter);
+        secureProfiles = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfter, unit)
+                .recordStats()
+                .removalListener((RemovalListener<UUID, GameProfile>) notification -> retire(staleSecureProfiles, notification))
+                .build();
+    }
+
+    public CacheStats getSecureProfileCacheStats() {
+        return secureProfiles.stats();
+    }
+
+    /**
+     * Replaces the cache of profiles the session server did not know with an empty one. Properties of those
+     * profiles are not requested again until the TTL has passed.
+     */
+    public void setNegativeCacheSettings(long maximumSize, long ttl, TimeUnit unit) {
+        missingProfiles = new NegativeCache<>(maximumSize, ttl, unit);
+    }
+
+    public long getNegativeCacheHitCount() {
+        return missingProfiles.getHitCount();
+    }
+
+    /**
+     * Profiles that expire or are evicted from the profile caches are kept for the given grace period, and
+     * served instead of the bare profile while the session server is unavailable. A grace period of 0
+     * disables serving stale profiles.
+     */
+    public void setStaleProfileSettings(long maximumSize, long gracePeriod, TimeUnit unit) {
+        Validate.isTrue(maximumSize > 0, "Maximum size must be positive");
+        Validate.isTrue(gracePeriod >= 0, "Grace period must not be negative");
+        Validate.notNull(unit);
+
+        if(gracePeriod == 0) {
+            staleProfiles = null;
+            staleSecureProfiles = null;
+            return;
+        }
+
+        staleProfiles = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(gracePeriod, unit).build();
+        staleSecureProfiles = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(gracePeriod, unit).build();
+    }
+
+    /**
+     * Replaces the cache of decoded texture payloads with an empty one. Payloads are keyed by the property
+     * value, and remember the signature they were last verified with so a repeated secure lookup skips the check.
+     */
+    public void setTextureCacheSettings(long maximumSize) {
+        Validate.isTrue(maximumSize > 0, "Maximum size must be positive");
+
+        textures = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    public KeyRing getKeyRing() {
+        return keyRing;
+    }
+
+    /**
+     * Verifies signatures against the given keys from now on. Profiles and textures that were verified against
+     * the previous key ring are dropped from the caches.
+     */
+    public void setKeyRing(KeyRing keyRing) {
+        Validate.notNull(keyRing);
+
+        this.keyRing = keyRing;
+        secureProfiles.invalidateAll();
+        textures.invalidateAll();
+
+        Cache<UUID, GameProfile> stale = staleSecureProfiles;
+
+        if(stale != null) {
+            stale.invalidateAll();
+        }
+    }
+
+    public long getStaleServeCount() {
+        return staleServes.get();
+    }
+
+    public ProfileStore getProfileStore() {
+        return profileStore;
+    }
+
+    /**
+     * Backs the profile caches with an on-disk store, or detaches the store when passed null. Profiles are
+     * read from the store when they miss the caches and written to it whenever they are fetched.
+     */
+    public void setProfileStore(ProfileStore profileStore) {
+        this.profileStore = profileStore;
+    }
+
+    private static void retire(Cache<UUID, GameProfile> stale, RemovalNotification<UUID, GameProfile> notification) {
+        if(stale != null && notification.wasEvicted() && notification.getKey() != null && notification.getValue() != null) {
+            stale.put(notification.getKey(), notification.getValue());
         }
     }
     
@@ -82,33 +277,86 @@ public class YggdrasilMinecraftSessionService extends HttpMinecraftSessionServic
 
     @Override
     public GameProfile hasJoinedServer(GameProfile user, String serverId) throws AuthenticationUnavailableException {
-        Map<String, Object> arguments = new HashMap<>();
-        arguments.put("username", user.getName());
-        arguments.put("serverId", serverId);
-
-        URL url = concatenateURL(CHECK_URL, buildQuery(arguments));
+        URL url = CHECK_URL.expand(user.getName(), serverId);
 
         try {
-            HasJoinedMinecraftServerResponse response = getAuthenticationService().makeRequest(url, null, HasJoinedMinecraftServerResponse.class);
+            HasJoinedMinecraftServerResponse response = getAuthenticationService().makeRequest(url, null, HasJoinedMinecraftServerResponse.class, hasJoinedHedgePolicy);
+            return toJoinedProfile(user, response);
+        } catch (AuthenticationUnavailableException e) {
+            throw e;
+        } catch (AuthenticationException e2) {
+            return null;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> joinServerAsync(GameProfile profile, String authenticationToken, String serverId) {
+        JoinMinecraftServerRequest request = new JoinMinecraftServerRequest();
+        request.accessToken = authenticationToken;
+        request.selectedProfile = profile.getId();
+        request.serverId = serverId;
 
-            if(response != null && response.getId() != null) {
-                GameProfile result = new GameProfile(response.getId(), user.getName());
+        return submitAsync(() -> getAuthenticationService().makeRequestAsync(JOIN_URL, request, Response.class).thenApply(response -> null));
+    }
+
+    @Override
+    public CompletableFuture<GameProfile> hasJoinedServerAsync(GameProfile user, String serverId) {
+        URL url = CHECK_URL.expand(user.getName(), serverId);
 
-                if(response.getProperties() != null) {
-                    result.getProperties().putAll(response.getProperties());
-                }
+        // Seeding the caches verifies signatures and writes to the store, which must not hold up a transport thread
+        return submitAsync(() -> getAuthenticationService().makeRequestAsync(url, null, HasJoinedMinecraftServerResponse.class, true, hasJoinedHedgePolicy)
+                .handleAsync((response, error) -> {
+                    if(error == null) {
+                        return toJoinedProfile(user, response);
+                    }
 
-                return result;
+                    Throwable cause = unwrap(error);
+
+                    if(cause instanceof AuthenticationException && !(cause instanceof AuthenticationUnavailableException)) {
+                        return null;
+                    }
+
+                    throw new CompletionException(cause);
+                }, getExecutor()));
+    }
+
+    private GameProfile toJoinedProfile(GameProfile user, HasJoinedMinecraftServerResponse response) {
+        if(response != null && response.getId() != null) {
+            GameProfile result = new GameProfile(response.getId(), user.getName());
+
+            if(response.getProperties() != null) {
+                result.getProperties().putAll(response.getProperties());
+                seedProfileCaches(result);
             }
 
-            return null;
-        } catch (AuthenticationUnavailableException e) {
-            throw e;
-        } catch (AuthenticationException e2) {
-            return null;
+            return result;
         }
+
+        return null;
     }
-    
+
+    // The hasJoined response carries the same signed properties a profile lookup would return moments later
+    private void seedProfileCaches(GameProfile joined) {
+        GameProfile copy = new GameProfile(joined.getId(), joined.getName());
+        copy.getProperties().putAll(joined.getProperties());
+
+        missingProfiles.invalidate(joined.getId());
+        insecureProfiles.put(joined.getId(), copy);
+        cacheSecureProfile(joined, copy);
+    }
+
+    public HedgePolicy getHasJoinedHedgePolicy() {
+        return hasJoinedHedgePolicy;
+    }
+
+    /**
+     * Hedges the hasJoined check against slow responses, or disables hedging when passed null. Hedging only
+     * has an effect when the authentication service uses a non-blocking transport.
+     */
+    public void setHasJoinedHedgePolicy(HedgePolicy hasJoinedHedgePolicy) {
+        this.hasJoinedHedgePolicy = hasJoinedHedgePolicy;
+    }
+
     @Override
     public Map<Type, MinecraftProfileTexture> getTextures(GameProfile profile, boolean requireSecure) {
         Property textureProperty = Iterables.getFirst(profile.getProperties().get("textures"), null);
@@ -117,31 +365,49 @@ public class YggdrasilMinecraftSessionService extends HttpMinecraftSessionServic
             return new HashMap<>();
         }
 
-        if(requireSecure) {
+        String value = textureProperty.getValue();
+        DecodedTextures decoded = textures.getIfPresent(value);
+
+        if(requireSecure && (decoded == null || !decoded.isVerified(textureProperty.getSignature()))) {
             if(!textureProperty.hasSignature()) {
                 LOGGER.error("Signature is missing from textures payload");
                 throw new InsecureTextureException("Signature is missing from textures payload");
             }
 
-            if(!textureProperty.isSignatureValid(this.publicKey)) {
+            if(!isSignatureValid(textureProperty)) {
                 LOGGER.error("Textures payload has been tampered with (signature invalid)");
                 throw new InsecureTextureException("Textures payload has been tampered with (signature invalid)");
             }
+
+            if(decoded != null) {
+                decoded.verifiedSignature = textureProperty.getSignature();
+            }
+        }
+
+        if(decoded == null) {
+            decoded = new DecodedTextures(decodeTextures(value));
+            decoded.verifiedSignature = requireSecure ? textureProperty.getSignature() : null;
+            textures.put(value, decoded);
         }
 
+        // The cached map is shared, callers get a copy they are free to modify as they always did
+        return new HashMap<>(decoded.textures);
+    }
+
+    private Map<Type, MinecraftProfileTexture> decodeTextures(String value) {
         MinecraftTexturesPayload result;
 
-        try {
-            final String json = new String(Base64.decodeBase64(textureProperty.getValue()), Charsets.UTF_8);
-            result = this.gson.fromJson(json, MinecraftTexturesPayload.class);
-        } catch (JsonParseException e) {
+        // Decode straight from the Base64 bytes instead of building the intermediate JSON string
+        try(JsonReader reader = new JsonReader(new InputStreamReader(new Base64InputStream(new ByteArrayInputStream(value.getBytes(Charsets.US_ASCII))), Charsets.UTF_8))) {
+            result = this.gson.fromJson(reader, MinecraftTexturesPayload.class);
+        } catch (JsonParseException | IOException e) {
             LOGGER.error("Could not decode textures payload", (Throwable)e);
-            return new HashMap<>();
+            return Collections.emptyMap();
         }
 
-        return (result.getTextures() == null) ? new HashMap<>() : result.getTextures();
+        return (result == null || result.getTextures() == null) ? Collections.<Type, MinecraftProfileTexture>emptyMap() : Collections.unmodifiableMap(result.getTextures());
     }
-    
+
     @Override
     public GameProfile fillProfileProperties(GameProfile profile, boolean requireSecure) {
         if(profile.getId() == null) {
@@ -149,35 +415,435 @@ public class YggdrasilMinecraftSessionService extends HttpMinecraftSessionServic
         }
 
         if(!requireSecure) {
-            return insecureProfiles.getUnchecked(profile);
+            GameProfile cached = getInsecureProfile(profile);
+
+            if(cached != null) {
+                return cached;
+            }
+
+            try {
+                GameProfile result = requestProfile(profile, false);
+                cacheInsecureProfile(profile, result);
+                return result;
+            } catch (AuthenticationException e) {
+                return fallback(profile, false, e);
+            }
+        }
+
+        GameProfile cached = getSecureProfile(profile);
+
+        if(cached != null) {
+            return cached;
         }
 
-        return fillGameProfile(profile, true);
-    }
-    
-    protected GameProfile fillGameProfile(GameProfile profile, boolean requireSecure) {
         try {
-            URL url = constantURL("https://sessionserver.mojang.com/session/minecraft/profile/" + UUIDTypeAdapter.fromUUID(profile.getId()));
-            url = concatenateURL(url, "unsigned=" + !requireSecure);
+            GameProfile result = requestProfile(profile, true);
+            cacheSecureProfile(profile, result);
+            return result;
+        } catch (AuthenticationException e) {
+            return fallback(profile, true, e);
+        }
+    }
 
-            MinecraftProfilePropertiesResponse response = getAuthenticationService().makeRequest(url, null, MinecraftProfilePropertiesResponse.class);
+    @Override
+    public CompletableFuture<GameProfile> fillProfilePropertiesAsync(GameProfile profile, boolean requireSecure) {
+        GameProfile cached = getCachedProfile(profile, requireSecure);
 
-            if(response == null) {
-                LOGGER.debug("Couldn't fetch profile properties for " + profile + " as the profile does not exist");
-                return profile;
+        if(cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return fetchProfileAsync(profile, requireSecure);
+    }
+
+    /**
+     * Fills the properties of many profiles at once. Profiles found in the caches complete immediately, the
+     * others are fetched with at most {@link #getBulkFillConcurrency()} requests in flight, and no faster than
+     * {@link #getBulkFillRateLimiter()} allows. Requests are further limited by the rate limiter configured for
+     * the session server's host, if any.
+     *
+     * @return the futures of the filled profiles, in the order of the given profiles
+     */
+    public List<CompletableFuture<GameProfile>> fillProfilePropertiesAsync(Collection<GameProfile> profiles, boolean requireSecure) {
+        List<CompletableFuture<GameProfile>> results = new ArrayList<>(profiles.size());
+        Queue<PendingFill> misses = new ConcurrentLinkedQueue<>();
+
+        for(GameProfile profile : profiles) {
+            GameProfile cached = getCachedProfile(profile, requireSecure);
+
+            if(cached != null) {
+                results.add(CompletableFuture.completedFuture(cached));
+            } else {
+                PendingFill pending = new PendingFill(profile);
+                misses.add(pending);
+                results.add(pending.result);
+            }
+        }
+
+        for(int lanes = Math.min(bulkFillConcurrency, misses.size()); lanes > 0; lanes--) {
+            fillNext(misses, requireSecure);
+        }
+
+        return results;
+    }
+
+    /**
+     * Fills the properties of many profiles at once, passing each filled profile to the callback as soon as it
+     * is available.
+     *
+     * @return a future that completes once every profile has been passed to the callback
+     */
+    public CompletableFuture<Void> fillProfilePropertiesAsync(Collection<GameProfile> profiles, boolean requireSecure, Consumer<GameProfile> callback) {
+        List<CompletableFuture<GameProfile>> results = fillProfilePropertiesAsync(profiles, requireSecure);
+        CompletableFuture<?>[] accepted = new CompletableFuture<?>[results.size()];
+
+        for(int i = 0; i < accepted.length; i++) {
+            accepted[i] = results.get(i).thenAccept(callback);
+        }
+
+        return CompletableFuture.allOf(accepted);
+    }
+
+    public int getBulkFillConcurrency() {
+        return bulkFillConcurrency;
+    }
+
+    public void setBulkFillConcurrency(int bulkFillConcurrency) {
+        Validate.isTrue(bulkFillConcurrency > 0, "Concurrency must be positive");
+        this.bulkFillConcurrency = bulkFillConcurrency;
+    }
+
+    public RateLimiter getBulkFillRateLimiter() {
+        return bulkFillRateLimiter;
+    }
+
+    /**
+     * Limits the rate at which bulk fills request profiles, or removes the limit when passed null.
+     */
+    public void setBulkFillRateLimiter(RateLimiter bulkFillRateLimiter) {
+        this.bulkFillRateLimiter = bulkFillRateLimiter;
+    }
+
+    // Each lane fetches one profile at a time, looping instead of recursing while fetches complete synchronously
+    private void fillNext(Queue<PendingFill> misses, boolean requireSecure) {
+        PendingFill pending;
+
+        while((pending = misses.poll()) != null) {
+            if(pending.result.isDone()) {
+                continue;
+            }
+
+            RateLimiter limiter = bulkFillRateLimiter;
+            long delay = (limiter == null) ? 0 : limiter.reserve();
+
+            if(delay < 0) {
+                pending.result.complete(fallback(pending.profile, requireSecure, new RateLimitedException("sessionserver.mojang.com")));
+                continue;
+            }
+
+            if(delay > 0) {
+                PendingFill current = pending;
+
+                // Fetches are handed to the session executor, so the lane can go on from the scheduler thread
+                HttpScheduler.shared().schedule(() -> {
+                    if(fill(current, misses, requireSecure)) {
+                        fillNext(misses, requireSecure);
+                    }
+                }, delay, TimeUnit.NANOSECONDS);
+                return;
+            }
+
+            if(!fill(pending, misses, requireSecure)) {
+                return;
+            }
+        }
+    }
+
+    // Returns whether the fetch completed synchronously, in which case the caller goes on with the lane
+    private boolean fill(PendingFill pending, Queue<PendingFill> misses, boolean requireSecure) {
+        CompletableFuture<GameProfile> future = fetchProfileAsync(pending.profile, requireSecure);
+
+        if(future.isDone()) {
+            future.whenComplete(pending::complete);
+            return true;
+        }
+
+        future.whenComplete((result, error) -> {
+            pending.complete(result, error);
+            fillNext(misses, requireSecure);
+        });
+        return false;
+    }
+
+    private GameProfile getCachedProfile(GameProfile profile, boolean requireSecure) {
+        if(profile.getId() == null) {
+            return profile;
+        }
+
+        return requireSecure ? getSecureProfile(profile) : getInsecureProfile(profile);
+    }
+
+    private CompletableFuture<GameProfile> fetchProfileAsync(GameProfile profile, boolean requireSecure) {
+        return submitAsync(() -> requestProfileAsync(profile, requireSecure).handle((result, error) -> {
+            if(error != null) {
+                return fallback(profile, requireSecure, unwrap(error));
+            }
+
+            if(requireSecure) {
+                cacheSecureProfile(profile, result);
+            } else {
+                cacheInsecureProfile(profile, result);
             }
 
-            GameProfile result = new GameProfile(response.getId(), response.getName());
-            result.getProperties().putAll(response.getProperties());
-            profile.getProperties().putAll(response.getProperties());
-            LOGGER.debug("Successfully fetched profile properties for " + profile);
             return result;
+        }));
+    }
+
+    private GameProfile fallback(GameProfile profile, boolean requireSecure, Throwable error) {
+        if(error instanceof AuthenticationUnavailableException) {
+            GameProfile stale = getStaleProfile(profile, requireSecure);
+
+            if(stale != null) {
+                staleServes.incrementAndGet();
+                LOGGER.warn("Couldn't look up profile properties for " + profile + ", using stale properties: " + error.getMessage());
+                return stale;
+            }
+        }
+
+        LOGGER.warn("Couldn't look up profile properties for " + profile, error);
+        return profile;
+    }
+
+    private GameProfile getStaleProfile(GameProfile profile, boolean requireSecure) {
+        Cache<UUID, GameProfile> staleProfiles = this.staleProfiles;
+        Cache<UUID, GameProfile> staleSecureProfiles = this.staleSecureProfiles;
+
+        if(staleProfiles == null || staleSecureProfiles == null) {
+            return null;
+        }
+
+        // Expired entries only reach the stale tier once their cache has been cleaned up
+        secureProfiles.cleanUp();
+
+        if(!requireSecure) {
+            insecureProfiles.cleanUp();
+            GameProfile stale = staleProfiles.getIfPresent(profile.getId());
+
+            if(stale != null) {
+                return stale;
+            }
+        }
+
+        return getSecureProfile(staleSecureProfiles, profile);
+    }
+
+    private GameProfile getInsecureProfile(GameProfile profile) {
+        LoadingCache<UUID, GameProfile> cache = insecureProfiles;
+        GameProfile cached = cache.getIfPresent(profile.getId());
+        ProfileStore store = profileStore;
+
+        if(cached == null && store != null) {
+            cached = store.getProfile(profile.getId(), false);
+
+            if(cached != null) {
+                cache.put(profile.getId(), cached);
+            }
+        }
+
+        return cached;
+    }
+
+    private void cacheInsecureProfile(GameProfile profile, GameProfile result) {
+        // Profiles the server did not find are only remembered by the negative cache
+        if(result == profile) {
+            return;
+        }
+
+        insecureProfiles.put(profile.getId(), result);
+        storeProfile(profile, result, false);
+    }
+
+    private GameProfile getSecureProfile(GameProfile profile) {
+        GameProfile cached = getSecureProfile(secureProfiles, profile);
+        ProfileStore store = profileStore;
+
+        if(cached == null && store != null) {
+            GameProfile stored = store.getProfile(profile.getId(), true);
+
+            // The file could have been modified, so stored properties are verified like fresh ones
+            if(stored != null && isValidlySigned(stored)) {
+                secureProfiles.put(profile.getId(), stored);
+                cached = getSecureProfile(secureProfiles, profile);
+            }
+        }
+
+        return cached;
+    }
+
+    // Hands out copies, as callers are free to modify the properties of the profiles they get back
+    private static GameProfile getSecureProfile(Cache<UUID, GameProfile> cache, GameProfile profile) {
+        GameProfile cached = cache.getIfPresent(profile.getId());
+
+        if(cached == null) {
+            return null;
+        }
+
+        GameProfile result = new GameProfile(cached.getId(), cached.getName());
+        result.getProperties().putAll(cached.getProperties());
+        profile.getProperties().putAll(cached.getProperties());
+        return result;
+    }
+
+    private void cacheSecureProfile(GameProfile profile, GameProfile result) {
+        // The profile itself comes back when the session server doesn't know it
+        if(result == profile) {
+            return;
+        }
+
+        if(!isValidlySigned(result)) {
+            LOGGER.warn("Not caching properties of " + result + " as they are not validly signed");
+            return;
+        }
+
+        GameProfile copy = new GameProfile(result.getId(), result.getName());
+        copy.getProperties().putAll(result.getProperties());
+        secureProfiles.put(profile.getId(), copy);
+        storeProfile(profile, copy, true);
+    }
+
+    private boolean isValidlySigned(GameProfile profile) {
+        for(Property property : profile.getProperties().values()) {
+            if(!property.hasSignature() || !isSignatureValid(property)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isSignatureValid(Property property) {
+        return keyRing.isSignatureValid(property);
+    }
+
+    private void storeProfile(GameProfile profile, GameProfile result, boolean signed) {
+        ProfileStore store = profileStore;
+
+        if(store != null && result != profile) {
+            store.putProfile(result, signed, signed ? secureProfileExpiry : profileExpiry, MILLISECONDS);
+        }
+    }
+
+    /**
+     * Fetches the properties of a profile, bypassing the caches.
+     *
+     * @deprecated no longer called by {@link #fillProfileProperties}, which now answers from the caches and falls
+     *             back to stale properties; override that method instead to change how profiles are filled
+     */
+    @Deprecated
+    protected GameProfile fillGameProfile(GameProfile profile, boolean requireSecure) {
+        try {
+            return requestProfile(profile, requireSecure);
         } catch (AuthenticationException e) {
             LOGGER.warn("Couldn't look up profile properties for " + profile, (Throwable)e);
             return profile;
         }
     }
+
+    /**
+     * Fetches the properties of a profile without blocking, bypassing the caches.
+     *
+     * @deprecated no longer called by {@link #fillProfilePropertiesAsync(GameProfile, boolean)}; override that
+     *             method instead to change how profiles are filled
+     */
+    @Deprecated
+    protected CompletableFuture<GameProfile> fillGameProfileAsync(GameProfile profile, boolean requireSecure) {
+        return requestProfileAsync(profile, requireSecure).handle((result, error) -> {
+            if(error != null) {
+                LOGGER.warn("Couldn't look up profile properties for " + profile, unwrap(error));
+                return profile;
+            }
+
+            return result;
+        });
+    }
+
+    private GameProfile requestProfile(GameProfile profile, boolean requireSecure) throws AuthenticationException {
+        NegativeCache<UUID> missingProfiles = this.missingProfiles;
+
+        if(missingProfiles.contains(profile.getId())) {
+            LOGGER.debug("Not fetching profile properties for " + profile + " as the profile recently did not exist");
+            return profile;
+        }
+
+        URL url = PROFILE_URL.expand(UUIDTypeAdapter.fromUUID(profile.getId()), !requireSecure);
+
+        MinecraftProfilePropertiesResponse response = getAuthenticationService().makeRequest(url, null, MinecraftProfilePropertiesResponse.class);
+        return toFilledProfile(profile, response, missingProfiles);
+    }
+
+    private CompletableFuture<GameProfile> requestProfileAsync(GameProfile profile, boolean requireSecure) {
+        NegativeCache<UUID> missingProfiles = this.missingProfiles;
+
+        if(missingProfiles.contains(profile.getId())) {
+            LOGGER.debug("Not fetching profile properties for " + profile + " as the profile recently did not exist");
+            return CompletableFuture.completedFuture(profile);
+        }
+
+        URL url = PROFILE_URL.expand(UUIDTypeAdapter.fromUUID(profile.getId()), !requireSecure);
+
+        return getAuthenticationService().makeRequestAsync(url, null, MinecraftProfilePropertiesResponse.class)
+                .thenApply(response -> toFilledProfile(profile, response, missingProfiles));
+    }
+
+    private static GameProfile toFilledProfile(GameProfile profile, MinecraftProfilePropertiesResponse response, NegativeCache<UUID> missingProfiles) {
+        if(response == null) {
+            LOGGER.debug("Couldn't fetch profile properties for " + profile + " as the profile does not exist");
+            missingProfiles.add(profile.getId());
+            return profile;
+        }
+
+        GameProfile result = new GameProfile(response.getId(), response.getName());
+        result.getProperties().putAll(response.getProperties());
+        profile.getProperties().putAll(response.getProperties());
+        LOGGER.debug("Successfully fetched profile properties for " + profile);
+        return result;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+    }
     
+    private static class PendingFill {
+        private final GameProfile profile;
+        private final CompletableFuture<GameProfile> result = new CompletableFuture<>();
+
+        private PendingFill(GameProfile profile) {
+            this.profile = profile;
+        }
+
+        private void complete(GameProfile value, Throwable error) {
+            if(error != null) {
+                result.completeExceptionally(unwrap(error));
+            } else {
+                result.complete(value);
+            }
+        }
+    }
+
+    private static class DecodedTextures {
+        private final Map<Type, MinecraftProfileTexture> textures;
+        private volatile String verifiedSignature;
+
+        private DecodedTextures(Map<Type, MinecraftProfileTexture> textures) {
+            this.textures = textures;
+        }
+
+        private boolean isVerified(String signature) {
+            String verified = verifiedSignature;
+            return verified != null && verified.equals(signature);
+        }
+    }
+
     @Override
     public YggdrasilAuthenticationService getAuthenticationService() {
         return (YggdrasilAuthenticationService) super.getAuthenticationService();
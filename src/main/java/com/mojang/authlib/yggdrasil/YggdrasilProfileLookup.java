@@ -0,0 +1,337 @@
+package com.mojang.authlib.yggdrasil;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.mojang.authlib.GameProfile;
+import com.mojang.authlib.ProfileLookup;
+import com.mojang.authlib.ProfileLookupResult;
+import com.mojang.authlib.exceptions.AuthenticationUnavailableException;
+import com.mojang.authlib.yggdrasil.response.ProfileSearchResultsResponse;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Sends search pages as results are consumed. Pages go out while fewer than the adaptive window are in flight
+ * and the buffered results plus the names in flight leave room for another page. Each page is sent from the
+ * request executor, so pages overlap even when the transport blocks while sending.
+ */
+class YggdrasilProfileLookup implements ProfileLookup {
+
+    private final YggdrasilGameProfileRepository repository;
+    private final String agentName;
+    private final Executor executor;
+    private final List<String> pending;
+    private final AdaptivePaging paging;
+    private final int capacity;
+    private final long deadline;
+    private final boolean hasDeadline;
+    private final Queue<ProfileLookupResult> results = new ArrayDeque<>();
+    private final Set<SearchPage> inFlight = Sets.newHashSet();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private int sent;
+    private int pageIndex;
+    private int reserved;
+    private boolean pumping;
+    private boolean finished;
+    private boolean timedOut;
+    private boolean cancelled;
+
+    YggdrasilProfileLookup(YggdrasilGameProfileRepository repository, String agentName, Executor executor, List<String> pending,
+                           Collection<ProfileLookupResult> known, AdaptivePaging paging, int capacity, long deadline, boolean hasDeadline) {
+        this.repository = repository;
+        this.agentName = agentName;
+        this.executor = executor;
+        this.pending = pending;
+        this.paging = paging;
+        this.capacity = capacity;
+        this.deadline = deadline;
+        this.hasDeadline = hasDeadline;
+        this.results.addAll(known);
+    }
+
+    void start() {
+        pump();
+    }
+
+    private void pump() {
+        while(true) {
+            List<SearchPage> pages = Lists.newArrayList();
+            boolean completed;
+
+            synchronized(this) {
+                if(pumping) {
+                    return;
+                }
+
+                takePages(pages);
+                completed = checkFinished();
+                pumping = !pages.isEmpty();
+            }
+
+            if(completed) {
+                complete();
+            }
+
+            if(pages.isEmpty()) {
+                return;
+            }
+
+            try {
+                for(SearchPage page : pages) {
+                    send(page);
+                }
+            } finally {
+                synchronized(this) {
+                    pumping = false;
+                }
+            }
+        }
+    }
+
+    private void send(SearchPage page) {
+        // Cancelling the task keeps a page that is still queued from going out, and interrupts one being sent
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            page.sentAt = System.nanoTime();
+            CompletableFuture<ProfileSearchResultsResponse> future;
+
+            // The task swallows what it throws, which would leave the page in flight forever
+            try {
+                future = repository.searchPage(agentName, page.names);
+            } catch(RuntimeException e) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+
+            synchronized(this) {
+                page.future = future;
+
+                if(cancelled) {
+                    future.cancel(true);
+                }
+            }
+
+            future.whenComplete((response, error) -> onPageCompleted(page));
+        }, null);
+
+        synchronized(this) {
+            page.task = task;
+        }
+
+        try {
+            executor.execute(task);
+        } catch(RejectedExecutionException e) {
+            CompletableFuture<ProfileSearchResultsResponse> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new AuthenticationUnavailableException("Request executor rejected search page", e));
+
+            synchronized(this) {
+                page.future = rejected;
+            }
+
+            // Only queues the results, sending the next pages is left to the pump that is running
+            onPageCompleted(page);
+        }
+    }
+
+    private void takePages(List<SearchPage> pages) {
+        if(cancelled || sent == pending.size()) {
+            return;
+        }
+
+        if(hasDeadline && System.nanoTime() - deadline >= 0) {
+            TimeoutException error = new TimeoutException("Profile lookup deadline passed");
+
+            for(String name : pending.subList(sent, pending.size())) {
+                results.add(new ProfileLookupResult(new GameProfile(null, name), error));
+            }
+
+            sent = pending.size();
+            timedOut = true;
+            notifyAll();
+            return;
+        }
+
+        while(sent < pending.size() && inFlight.size() < paging.getWindow()) {
+            int size = Math.min(paging.getPageSize(), pending.size() - sent);
+
+            // A single page is always let through so a capacity below the page size cannot stall the lookup
+            if(results.size() + reserved + size > capacity && !(results.isEmpty() && inFlight.isEmpty())) {
+                return;
+            }
+
+            SearchPage page = new SearchPage(pageIndex++, pending.subList(sent, sent + size));
+            sent += size;
+            reserved += size;
+            inFlight.add(page);
+            pages.add(page);
+        }
+    }
+
+    private void onPageCompleted(SearchPage page) {
+        synchronized(this) {
+            if(!inFlight.contains(page)) {
+                return;
+            }
+        }
+
+        List<ProfileLookupResult> produced = repository.readPage(agentName, page.index, page.names, page.future, page.sentAt, paging);
+        boolean completed;
+
+        synchronized(this) {
+            if(!inFlight.remove(page)) {
+                return;
+            }
+
+            reserved -= page.names.size();
+
+            if(!cancelled) {
+                results.addAll(produced);
+            }
+
+            completed = checkFinished();
+            notifyAll();
+        }
+
+        if(completed) {
+            complete();
+        }
+
+        pump();
+    }
+
+    private boolean checkFinished() {
+        if(finished || cancelled || sent < pending.size() || !inFlight.isEmpty()) {
+            return false;
+        }
+
+        finished = true;
+        return true;
+    }
+
+    private void complete() {
+        if(timedOut) {
+            completion.completeExceptionally(new TimeoutException("Profile lookup deadline passed"));
+        } else {
+            completion.complete(null);
+        }
+
+        // Iteration only ends once the completion future is done, so consumers can rely on it right away
+        synchronized(this) {
+            notifyAll();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        synchronized(this) {
+            while(results.isEmpty()) {
+                if(cancelled || completion.isDone()) {
+                    return false;
+                }
+
+                try {
+                    wait();
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancel();
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    @Override
+    public ProfileLookupResult next() {
+        ProfileLookupResult result;
+
+        synchronized(this) {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            result = results.poll();
+        }
+
+        pump();
+        return result;
+    }
+
+    @Override
+    public Stream<ProfileLookupResult> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::close);
+    }
+
+    @Override
+    public CompletableFuture<Void> getCompletionFuture() {
+        return completion;
+    }
+
+    @Override
+    public boolean cancel() {
+        List<SearchPage> abandoned;
+
+        synchronized(this) {
+            if(finished || cancelled) {
+                return false;
+            }
+
+            cancelled = true;
+            abandoned = Lists.newArrayList(inFlight);
+            inFlight.clear();
+            results.clear();
+            notifyAll();
+        }
+
+        for(SearchPage page : abandoned) {
+            if(page.task != null) {
+                page.task.cancel(true);
+            }
+
+            if(page.future != null) {
+                page.future.cancel(true);
+            }
+        }
+
+        completion.cancel(false);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void close() {
+        cancel();
+    }
+
+    private static class SearchPage {
+        private final int index;
+        private final List<String> names;
+        private volatile long sentAt;
+        private FutureTask<Void> task;
+        private CompletableFuture<ProfileSearchResultsResponse> future;
+
+        private SearchPage(int index, List<String> names) {
+            this.index = index;
+            this.names = names;
+        }
+    }
+
+}
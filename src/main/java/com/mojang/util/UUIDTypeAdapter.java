@@ -9,6 +9,8 @@ import java.util.UUID;
 
 public class UUIDTypeAdapter extends TypeAdapter<UUID> {
 
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
     public void write(JsonWriter out, UUID value) throws IOException {
         out.value(fromUUID(value));
     }
@@ -18,7 +20,17 @@ public class UUIDTypeAdapter extends TypeAdapter<UUID> {
     }
 
     public static String fromUUID(UUID value) {
-        return value.toString().replace("-", "");
+        char[] chars = new char[32];
+        writeHex(chars, 0, value.getMostSignificantBits());
+        writeHex(chars, 16, value.getLeastSignificantBits());
+        return new String(chars);
+    }
+
+    private static void writeHex(char[] chars, int offset, long bits) {
+        for(int i = 15; i >= 0; i--) {
+            chars[offset + i] = HEX[(int) (bits & 0xF)];
+            bits >>>= 4;
+        }
     }
 
     public static UUID fromString(String input) {